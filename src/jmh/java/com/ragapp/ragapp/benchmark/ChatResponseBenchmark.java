@@ -0,0 +1,39 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.ragapp.ragapp.ChatResponse;
+import com.ragapp.ragapp.QueryRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the response DTO with its reference list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatResponseBenchmark {
+
+    @Param({ "3", "10" })
+    private int references;
+
+    private List<String> excerpts;
+    private String answer;
+    private final QueryRoute route = new QueryRoute(QueryRoute.Intent.KNOWLEDGE, QueryRoute.Source.LEXICON, 0.9);
+
+    @Setup
+    public void setUp() {
+        excerpts = IntStream.range(0, references).mapToObj(i -> SampleText.chunk(i, 1500)).toList();
+        answer = SampleText.answer(2);
+    }
+
+    @Benchmark
+    public ChatResponse withReferences() {
+        return ChatResponse.withReferences(answer, excerpts, route);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.ragapp.ragapp.ChatRequestCoalescer;
+import com.ragapp.ragapp.ChatResponse;
+import com.ragapp.ragapp.ChatService;
+import com.ragapp.ragapp.ContextBuilder;
+import com.ragapp.ragapp.LexiconQueryClassifier;
+import com.ragapp.ragapp.LlmQueryClassifier;
+import com.ragapp.ragapp.QueryRouter;
+import com.ragapp.ragapp.RagMetrics;
+import com.ragapp.ragapp.SemanticAnswerCache;
+import com.ragapp.ragapp.VectorChunkRetriever;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.client.ChatClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the full {@link ChatService#chat(String)} path offline: routing,
+ * retrieval against a stub store, prompt and context assembly, and a stub
+ * model call. The answer cache is disabled so every call does the full work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatServiceBenchmark {
+
+    @Param({ "false", "true" })
+    private boolean speculativeRetrieval;
+
+    private ChatService chatService;
+    private ExecutorService blockingExecutor;
+
+    @Setup
+    public void setUp() {
+        ChatClient.Builder chatClientBuilder = ChatClient.builder(new StubChatModel(SampleText.answer(1)));
+        QueryRouter router = new QueryRouter(new LexiconQueryClassifier(),
+                new LlmQueryClassifier(chatClientBuilder), "local", 0.7);
+        RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry());
+        SemanticAnswerCache answerCache = new SemanticAnswerCache(new StubEmbeddingModel(), metrics, false, 0.95, 500,
+                Duration.ofMinutes(30));
+        ContextBuilder contextBuilder = new ContextBuilder(new VectorChunkRetriever(new StubVectorStore(3, 1500)),
+                new StubEmbeddingModel(), metrics, 3, 0.5, 3, 1200, 4, 48, true, 0.7, 0.95);
+        blockingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        chatService = new ChatService(contextBuilder, new StubEmbeddingModel(), chatClientBuilder, router,
+                answerCache, metrics, new ChatRequestCoalescer(metrics, false), blockingExecutor,
+                Schedulers.fromExecutorService(blockingExecutor), speculativeRetrieval, 0, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        blockingExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public ChatResponse knowledgeQuery() {
+        return chatService.chat("What is the annual leave policy for part-time employees?");
+    }
+
+    @Benchmark
+    public ChatResponse casualQuery() {
+        return chatService.chat("hello there");
+    }
+}
@@ -0,0 +1,156 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.pgvector.PGvector;
+import com.ragapp.ragapp.ChunkRetriever;
+import com.ragapp.ragapp.HalfPrecisionChunkRetriever;
+import com.ragapp.ragapp.HalfPrecisionMigration;
+import com.ragapp.ragapp.VectorChunkRetriever;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.PgVectorStore;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 search latency against a real PostgreSQL with pgvector, on the
+ * full-precision HNSW index versus the half-precision one, with and without
+ * full-precision re-ranking of the candidates.
+ *
+ * <p>Set-up converts the table with {@link HalfPrecisionMigration} and prints
+ * the size of both indexes and the recall@10 of each variant against an exact
+ * (sequential scan) search. Embeddings are pseudo-random, which is harder for
+ * HNSW than real text embeddings, so absolute recall is pessimistic; the gap
+ * between the variants is what matters.
+ *
+ * <p>Needs the {@code vector_store} table created by the application (run it
+ * once against the database). Rows are tagged with their own source and
+ * removed again at tear-down; the {@code embedding_half} column and its index
+ * are left in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddingPrecisionBenchmark {
+
+    private static final String SOURCE = "jmh-precision-benchmark";
+    private static final int TOP_K = 10;
+    private static final int RECALL_QUERIES = 100;
+
+    @Param({ "10000", "50000" })
+    private int chunks;
+
+    private JdbcTemplate jdbcTemplate;
+    private ChunkRetriever fullRetriever;
+    private ChunkRetriever halfRetriever;
+    private ChunkRetriever rerankRetriever;
+    private int query;
+
+    @Setup
+    public void setUp() {
+        String url = System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/ragdb");
+        String username = System.getProperty("benchmark.jdbc.username", "postgres");
+        String password = System.getProperty("benchmark.jdbc.password", "postgres");
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        PgVectorStore vectorStore = new PgVectorStore(jdbcTemplate, embeddingModel);
+
+        deleteRows();
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            batch.add(new Document(SampleText.chunk(i, 200), Map.of("source", SOURCE)));
+            if (batch.size() == 256) {
+                vectorStore.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        vectorStore.add(batch);
+
+        HalfPrecisionMigration migration = new HalfPrecisionMigration(jdbcTemplate, "half",
+                StubEmbeddingModel.DIMENSIONS, 1000);
+        HalfPrecisionMigration.Status status = migration.migrate(false);
+        jdbcTemplate.execute("ANALYZE vector_store");
+
+        fullRetriever = new VectorChunkRetriever(vectorStore);
+        halfRetriever = new HalfPrecisionChunkRetriever(jdbcTemplate, embeddingModel, migration, fullRetriever, 0);
+        rerankRetriever = new HalfPrecisionChunkRetriever(jdbcTemplate, embeddingModel, migration, fullRetriever,
+                40);
+
+        System.out.printf("%nIndex size: full %.1f MB, half %.1f MB (%d rows)%n",
+                status.fullIndexBytes() / 1048576.0, status.halfIndexBytes() / 1048576.0, status.rows());
+        // One connection, so the session setting forcing exact search sticks
+        SingleConnectionDataSource exact = new SingleConnectionDataSource(url, username, password, true);
+        try {
+            JdbcTemplate exactTemplate = new JdbcTemplate(exact);
+            exactTemplate.execute("SET enable_indexscan = off");
+            System.out.printf("Recall@%d: full %.3f, half %.3f, half + rerank %.3f%n", TOP_K,
+                    recall(exactTemplate, fullRetriever), recall(exactTemplate, halfRetriever),
+                    recall(exactTemplate, rerankRetriever));
+        } finally {
+            exact.destroy();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteRows();
+    }
+
+    @Benchmark
+    public List<Document> fullPrecision() {
+        return fullRetriever.retrieve(nextQuery());
+    }
+
+    @Benchmark
+    public List<Document> halfPrecision() {
+        return halfRetriever.retrieve(nextQuery());
+    }
+
+    @Benchmark
+    public List<Document> halfPrecisionRerank() {
+        return rerankRetriever.retrieve(nextQuery());
+    }
+
+    private SearchRequest nextQuery() {
+        return SearchRequest.query(queryText(query++ % RECALL_QUERIES)).withTopK(TOP_K);
+    }
+
+    private static String queryText(int i) {
+        return "How are expense claims for policy " + i + " approved?";
+    }
+
+    /**
+     * Share of the exact top-k that the retriever returns, averaged over the
+     * recall queries.
+     */
+    private static double recall(JdbcTemplate exact, ChunkRetriever retriever) {
+        int found = 0;
+        for (int i = 0; i < RECALL_QUERIES; i++) {
+            String text = queryText(i);
+            Set<String> expected = new HashSet<>(exact.queryForList(
+                    "SELECT id::text FROM vector_store ORDER BY embedding <=> ? LIMIT ?", String.class,
+                    new PGvector(StubEmbeddingModel.vector(text)), TOP_K));
+            for (Document document : retriever.retrieve(SearchRequest.query(text).withTopK(TOP_K))) {
+                if (expected.contains(document.getId())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (RECALL_QUERIES * TOP_K);
+    }
+
+    private void deleteRows() {
+        jdbcTemplate.update("DELETE FROM vector_store WHERE metadata->>'source' = ?", SOURCE);
+    }
+}
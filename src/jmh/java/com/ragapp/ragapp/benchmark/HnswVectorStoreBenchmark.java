@@ -0,0 +1,58 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.ragapp.ragapp.HnswVectorStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-3 similarity search against the in-process HNSW store, held in memory,
+ * including the (stub) query embedding. Compare with a pgvector round trip to
+ * see what the JDBC path costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HnswVectorStoreBenchmark {
+
+    @Param({ "1000", "10000" })
+    private int chunks;
+
+    private HnswVectorStore store;
+    private int query;
+
+    @Setup
+    public void setUp() {
+        store = new HnswVectorStore(new StubEmbeddingModel(),
+                new HnswVectorStore.Options(null, 16, 100, 64, Duration.ofSeconds(30)));
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            batch.add(new Document(SampleText.chunk(i, 200), Map.of("source", "benchmark.pdf")));
+            if (batch.size() == 256) {
+                store.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        store.add(batch);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        return store.similaritySearch(SearchRequest.query("question " + (query++ % 100)).withTopK(3));
+    }
+}
@@ -0,0 +1,53 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.ragapp.ragapp.ui.MarkdownRenderer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders typical LLM answers of increasing length to HTML, as the chat view
+ * does for every AI message, either in one call or streamed in token-sized
+ * chunks through the incremental renderer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownRendererBenchmark {
+
+    /**
+     * Roughly what one UI push carries while an answer streams.
+     */
+    private static final int STREAM_CHUNK_CHARS = 64;
+
+    /**
+     * Number of repeated answer sections (about 1 KB each).
+     */
+    @Param({ "1", "4", "16" })
+    private int sections;
+
+    private String markdown;
+
+    @Setup
+    public void setUp() {
+        markdown = SampleText.answer(sections);
+    }
+
+    @Benchmark
+    public String toHtml() {
+        return MarkdownRenderer.toHtml(markdown);
+    }
+
+    @Benchmark
+    public void streamed(Blackhole blackhole) {
+        MarkdownRenderer.Incremental renderer = MarkdownRenderer.incremental();
+        for (int i = 0; i < markdown.length(); i += STREAM_CHUNK_CHARS) {
+            blackhole.consume(renderer.append(markdown.substring(i, Math.min(markdown.length(), i + STREAM_CHUNK_CHARS))));
+        }
+        blackhole.consume(renderer.finish());
+    }
+}
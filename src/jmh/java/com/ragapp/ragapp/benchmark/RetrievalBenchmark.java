@@ -0,0 +1,98 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.ragapp.ragapp.ChunkRetriever;
+import com.ragapp.ragapp.FullTextSearchIndex;
+import com.ragapp.ragapp.HybridChunkRetriever;
+import com.ragapp.ragapp.VectorChunkRetriever;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.PgVectorStore;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-3 retrieval latency against a real PostgreSQL with pgvector: vector-only
+ * similarity search versus the hybrid full-text + vector query. Queries name
+ * an exact chunk number, the case hybrid retrieval is meant for.
+ *
+ * <p>Needs the {@code vector_store} table created by the application (run it
+ * once against the database). Rows are tagged with their own source and
+ * removed again at tear-down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetrievalBenchmark {
+
+    private static final String SOURCE = "jmh-hybrid-benchmark";
+
+    @Param({ "1000", "10000" })
+    private int chunks;
+
+    private JdbcTemplate jdbcTemplate;
+    private ChunkRetriever vectorRetriever;
+    private ChunkRetriever hybridRetriever;
+    private int query;
+
+    @Setup
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/ragdb"),
+                System.getProperty("benchmark.jdbc.username", "postgres"),
+                System.getProperty("benchmark.jdbc.password", "postgres"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        PgVectorStore vectorStore = new PgVectorStore(jdbcTemplate, embeddingModel);
+
+        deleteRows();
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            batch.add(new Document(SampleText.chunk(i, 200), Map.of("source", SOURCE)));
+            if (batch.size() == 256) {
+                vectorStore.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        vectorStore.add(batch);
+        jdbcTemplate.execute("ANALYZE vector_store");
+
+        vectorRetriever = new VectorChunkRetriever(vectorStore);
+        FullTextSearchIndex textIndex = new FullTextSearchIndex(jdbcTemplate, "hybrid", 1000);
+        textIndex.migrate();
+        HybridChunkRetriever hybrid = new HybridChunkRetriever(jdbcTemplate, embeddingModel, textIndex,
+                vectorRetriever, 20, 60);
+        hybridRetriever = hybrid;
+    }
+
+    @TearDown
+    public void tearDown() {
+        deleteRows();
+    }
+
+    @Benchmark
+    public List<Document> vectorOnly() {
+        return vectorRetriever.retrieve(nextQuery());
+    }
+
+    @Benchmark
+    public List<Document> hybrid() {
+        return hybridRetriever.retrieve(nextQuery());
+    }
+
+    private SearchRequest nextQuery() {
+        return SearchRequest.query("policy " + (query++ % chunks) + " expense claims").withTopK(3);
+    }
+
+    private void deleteRows() {
+        jdbcTemplate.update("DELETE FROM vector_store WHERE metadata->>'source' = ?", SOURCE);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ragapp.ragapp.benchmark;
+
+/**
+ * Realistic-looking inputs for the benchmarks: Markdown answers shaped like
+ * what gemma3 produces, and policy-document chunks.
+ */
+final class SampleText {
+
+    private static final String ANSWER_SECTION = """
+            ## Annual Leave Policy
+
+            Based on the **Employee Handbook**, full-time employees are entitled to *25 days* of paid annual leave per year. Here is a summary:
+
+            1. Leave accrues monthly at a rate of **2.08 days**.
+            2. Up to __5 days__ may be carried over into the next year.
+            3. Requests must be submitted via the `HR Portal` at least two weeks in advance.
+
+            ### Key points
+
+            - Unused leave beyond the carry-over limit is *forfeited* on 31 March.
+            - Part-time employees receive leave _pro rata_.
+            - Public holidays are **not** deducted from the allowance.
+
+            If you need the exact wording, the relevant section reads:
+
+            ```
+            Section 4.2 - Employees may not take more than 10 consecutive working days without manager approval.
+            ```
+
+            Please note that the context does not cover *sabbatical leave*, so check with HR for details.
+
+            """;
+
+    private static final String POLICY_TEXT = "Employees must submit expense claims within 30 days of incurring "
+            + "the expense. Claims above EUR 500 require approval from a cost-centre manager. Travel booked "
+            + "outside the corporate portal is reimbursed at economy rates only. Receipts must be itemised and "
+            + "legible; card slips alone are not sufficient. ";
+
+    private SampleText() {
+    }
+
+    static String answer(int sections) {
+        return ANSWER_SECTION.repeat(sections);
+    }
+
+    static String chunk(int index, int chars) {
+        StringBuilder sb = new StringBuilder("Policy " + index + ". ");
+        while (sb.length() < chars) {
+            sb.append(POLICY_TEXT);
+        }
+        return sb.substring(0, chars);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ragapp.ragapp.benchmark;
+
+import com.ragapp.ragapp.ChatRequestCoalescer;
+import com.ragapp.ragapp.ChatResponse;
+import com.ragapp.ragapp.ChatService;
+import com.ragapp.ragapp.ContextBuilder;
+import com.ragapp.ragapp.LexiconQueryClassifier;
+import com.ragapp.ragapp.LlmQueryClassifier;
+import com.ragapp.ragapp.QueryRouter;
+import com.ragapp.ragapp.RagMetrics;
+import com.ragapp.ragapp.SemanticAnswerCache;
+import com.ragapp.ragapp.VectorChunkRetriever;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.client.ChatClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the serving modes: runs {@code conversations} concurrent
+ * {@link ChatService#chat(String)} requests against a chat model that takes
+ * {@link #MODEL_LATENCY} per answer, and measures how long all of them take.
+ *
+ * <p>{@code platform} serves requests from a 200-thread pool, like Tomcat's
+ * default; {@code virtual} starts a virtual thread per request, as with
+ * {@code spring.threads.virtual.enabled=true}. A mode sustains N concurrent
+ * conversations while the time stays close to one model latency; beyond
+ * that, requests queue for a thread. The model bulkhead is left out, so this
+ * measures the web tier alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ServingModeBenchmark {
+
+    static final Duration MODEL_LATENCY = Duration.ofMillis(500);
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({ "platform", "virtual" })
+    private String threads;
+
+    @Param({ "200", "1000", "4000" })
+    private int conversations;
+
+    private ExecutorService requestExecutor;
+    private ExecutorService blockingExecutor;
+    private ExecutorService speculativeExecutor;
+    private ChatService chatService;
+
+    @Setup
+    public void setUp() {
+        boolean virtual = "virtual".equals(threads);
+        requestExecutor = virtual ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        blockingExecutor = virtual ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        speculativeExecutor = virtual ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+
+        ChatClient.Builder chatClientBuilder = ChatClient.builder(
+                new StubChatModel(SampleText.answer(1), MODEL_LATENCY));
+        QueryRouter router = new QueryRouter(new LexiconQueryClassifier(),
+                new LlmQueryClassifier(chatClientBuilder), "local", 0.7);
+        RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry());
+        SemanticAnswerCache answerCache = new SemanticAnswerCache(new StubEmbeddingModel(), metrics, false, 0.95, 500,
+                Duration.ofMinutes(30));
+        ContextBuilder contextBuilder = new ContextBuilder(new VectorChunkRetriever(new StubVectorStore(3, 1500)),
+                new StubEmbeddingModel(), metrics, 3, 0.5, 3, 1200, 4, 48, true, 0.7, 0.95);
+        chatService = new ChatService(contextBuilder, new StubEmbeddingModel(), chatClientBuilder, router,
+                answerCache, metrics, new ChatRequestCoalescer(metrics, false), speculativeExecutor,
+                Schedulers.fromExecutorService(blockingExecutor), true, 0, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        requestExecutor.shutdownNow();
+        blockingExecutor.shutdownNow();
+        speculativeExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int concurrentConversations() throws Exception {
+        List<Future<ChatResponse>> responses = new ArrayList<>(conversations);
+        for (int i = 0; i < conversations; i++) {
+            String query = "What is the annual leave policy for employee " + i + "?";
+            responses.add(requestExecutor.submit(() -> chatService.chat(query)));
+        }
+        int answered = 0;
+        for (Future<ChatResponse> response : responses) {
+            if (response.get().answer() != null) {
+                answered++;
+            }
+        }
+        return answered;
+    }
+}
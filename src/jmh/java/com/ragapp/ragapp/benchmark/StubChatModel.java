@@ -0,0 +1,43 @@
+package com.ragapp.ragapp.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Chat model that answers with a fixed text, instantly or after a fixed
+ * latency, so benchmarks measure only the application code around the model
+ * call.
+ */
+class StubChatModel implements ChatModel {
+
+    private final String answer;
+    private final Duration latency;
+
+    StubChatModel(String answer) {
+        this(answer, Duration.ZERO);
+    }
+
+    StubChatModel(String answer, Duration latency) {
+        this.answer = answer;
+        this.latency = latency;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted", e);
+            }
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ragapp.ragapp.benchmark;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Vector store returning a fixed set of realistic chunks for every search.
+ */
+class StubVectorStore implements VectorStore {
+
+    private final List<Document> documents;
+
+    StubVectorStore(int chunks, int chunkChars) {
+        this.documents = IntStream.range(0, chunks)
+                .mapToObj(i -> {
+                    String content = SampleText.chunk(i, chunkChars);
+                    Document document = new Document(content,
+                            Map.<String, Object>of("source", "handbook.pdf", "distance", 0.1f + i * 0.05f));
+                    document.setEmbedding(StubEmbeddingModel.vector(content));
+                    return document;
+                })
+                .toList();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        return Optional.of(true);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return documents.subList(0, Math.min(request.getTopK(), documents.size()));
+    }
+}
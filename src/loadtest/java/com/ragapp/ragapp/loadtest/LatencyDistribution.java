@@ -0,0 +1,62 @@
+package com.ragapp.ragapp.loadtest;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delay drawn for each stubbed model call, in milliseconds:
+ * <ul>
+ * <li>{@code fixed:200} - always 200 ms</li>
+ * <li>{@code uniform:100:400} - uniformly between 100 and 400 ms</li>
+ * <li>{@code lognormal:200:0.5} - log-normal with a median of 200 ms and a
+ * sigma of 0.5, the long-tailed shape of real inference latency</li>
+ * </ul>
+ */
+@FunctionalInterface
+interface LatencyDistribution {
+
+    LatencyDistribution NONE = () -> Duration.ZERO;
+
+    Duration sample();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed" -> {
+                    Duration delay = Duration.ofMillis(Long.parseLong(parts[1]));
+                    return () -> delay;
+                }
+                case "uniform" -> {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    if (max < min) {
+                        throw new IllegalArgumentException("Maximum below minimum in " + spec);
+                    }
+                    return () -> Duration.ofMillis(ThreadLocalRandom.current().nextLong(min, max + 1));
+                }
+                case "lognormal" -> {
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = Double.parseDouble(parts[2]);
+                    return () -> Duration.ofMillis(
+                            Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian())));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Expected fixed:MS, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA, got " + spec, e);
+        }
+    }
+
+    /**
+     * Sleeps for one sample.
+     */
+    default void pause() throws InterruptedException {
+        Duration delay = sample();
+        if (!delay.isZero()) {
+            Thread.sleep(delay);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ragapp.ragapp.loadtest;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load: a fixed number of clients, each on its own virtual
+ * thread, sending its next request as soon as the previous response has been
+ * read completely. Latency is measured to the last byte of the response,
+ * time to first byte to the first byte of the body (for streamed answers, the
+ * first event), both only for successful requests.
+ */
+final class LoadDriver {
+
+    /**
+     * Outcome of one measured run.
+     *
+     * @param latencies nanoseconds, sorted
+     * @param ttfb      nanoseconds, sorted
+     * @param errors    failed requests by HTTP status or exception
+     */
+    record Result(Scenario scenario, int clients, Duration duration, long[] latencies, long[] ttfb,
+            Map<String, Long> errors) {
+
+        long requests() {
+            return latencies.length + errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        void print(PrintStream out) {
+            long requests = requests();
+            long failed = requests - latencies.length;
+            double seconds = duration.toNanos() / 1e9;
+            out.printf("%n%s: %d clients, %.0f s%n", scenario.displayName(), clients, seconds);
+            out.printf("  requests  %d (%.1f/s), %d ok (%.1f/s)%n", requests, requests / seconds,
+                    latencies.length, latencies.length / seconds);
+            out.printf("  errors    %d (%.2f%%)%s%n", failed, requests == 0 ? 0 : 100.0 * failed / requests,
+                    errors.isEmpty() ? "" : " " + errors);
+            printPercentiles(out, "latency", latencies);
+            printPercentiles(out, "ttfb", ttfb);
+        }
+
+        private static void printPercentiles(PrintStream out, String label, long[] sorted) {
+            out.printf("  %-8s  p50 %8.1f ms  p95 %8.1f ms  p99 %8.1f ms  max %8.1f ms%n", label,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+        }
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final LoadTestOptions options;
+    private final AtomicLong sequence = new AtomicLong();
+
+    LoadDriver(HttpClient client, String baseUrl, LoadTestOptions options) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.options = options;
+    }
+
+    /**
+     * Runs the warm-up and then the measured period. Requests still in flight
+     * at the end of the measured period are waited for but not counted.
+     */
+    Result run(Scenario scenario) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long measureUntil = measureFrom + options.duration().toNanos();
+
+        List<Recorder> recorders = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < options.clients(); i++) {
+            Recorder recorder = new Recorder();
+            recorders.add(recorder);
+            threads.add(Thread.ofVirtual().name("load-client-" + i)
+                    .start(() -> runClient(scenario, recorder, measureFrom, measureUntil)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Recorder all = new Recorder();
+        recorders.forEach(all::addAll);
+        return all.result(scenario, options.clients(), options.duration());
+    }
+
+    private void runClient(Scenario scenario, Recorder recorder, long measureFrom, long measureUntil) {
+        long now;
+        while ((now = System.nanoTime()) < measureUntil) {
+            boolean measured = now >= measureFrom;
+            long start = now;
+            long firstByte = -1;
+            try {
+                HttpResponse<InputStream> response = client.send(
+                        scenario.request(baseUrl, sequence.getAndIncrement(), options),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    if (body.read() >= 0) {
+                        firstByte = System.nanoTime();
+                    }
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+                long end = System.nanoTime();
+                if (!measured || end > measureUntil) {
+                    continue;
+                }
+                if (response.statusCode() >= 400) {
+                    recorder.error("HTTP " + response.statusCode());
+                } else {
+                    recorder.success(end - start, (firstByte < 0 ? end : firstByte) - start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (measured && System.nanoTime() <= measureUntil) {
+                    recorder.error(e.getClass().getSimpleName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Percentile by the nearest-rank method, in milliseconds.
+     */
+    static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    /**
+     * Samples of one client; merged once all clients have finished.
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private long[] ttfb = new long[1024];
+        private int size;
+        private final Map<String, Long> errors = new TreeMap<>();
+
+        void success(long latency, long firstByte) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+                ttfb = Arrays.copyOf(ttfb, size * 2);
+            }
+            latencies[size] = latency;
+            ttfb[size] = firstByte;
+            size++;
+        }
+
+        void error(String kind) {
+            errors.merge(kind, 1L, Long::sum);
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.size; i++) {
+                success(other.latencies[i], other.ttfb[i]);
+            }
+            other.errors.forEach((kind, count) -> errors.merge(kind, count, Long::sum));
+        }
+
+        Result result(Scenario scenario, int clients, Duration duration) {
+            long[] sortedLatencies = Arrays.copyOf(latencies, size);
+            long[] sortedTtfb = Arrays.copyOf(ttfb, size);
+            Arrays.sort(sortedLatencies);
+            Arrays.sort(sortedTtfb);
+            return new Result(scenario, clients, duration, sortedLatencies, sortedTtfb,
+                    Collections.unmodifiableMap(new TreeMap<>(errors)));
+        }
+    }
+}
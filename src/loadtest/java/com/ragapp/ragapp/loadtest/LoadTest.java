@@ -0,0 +1,115 @@
+package com.ragapp.ragapp.loadtest;
+
+import com.ragapp.ragapp.RagappApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Load test of the chat and ingestion endpoints without Ollama or PostgreSQL:
+ * starts a {@link StubOllamaServer}, starts the application against it with
+ * the {@code loadtest} profile (in-process HNSW vector store), seeds a corpus,
+ * and runs each scenario with {@link LoadDriver}, printing throughput,
+ * latency and time-to-first-byte percentiles and errors.
+ *
+ * <pre>
+ * ./mvnw -Ploadtest compile exec:exec -Dloadtest.args="--scenario chat,chat-stream --clients 32"
+ * </pre>
+ *
+ * <p>The application shares the JVM and CPUs with the clients, which is
+ * enough to compare changes on one machine. For cleaner numbers start the
+ * stub and the application separately and pass {@code --target}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        try (StubOllamaServer stub = StubOllamaServer.start(options.stub());
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            ConfigurableApplicationContext application = null;
+            String baseUrl = options.target();
+            if (baseUrl == null) {
+                application = startApplication(stub, options);
+                baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+            }
+            try {
+                seed(client, baseUrl, options.seedDocuments());
+                LoadDriver driver = new LoadDriver(client, baseUrl, options);
+                for (Scenario scenario : options.scenarios()) {
+                    StubOllamaServer.Stats before = stub.stats();
+                    LoadDriver.Result result = driver.run(scenario);
+                    result.print(System.out);
+                    printModelCalls(before, stub.stats());
+                }
+            } finally {
+                if (application != null) {
+                    application.close();
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApplication(StubOllamaServer stub, LoadTestOptions options) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--spring.ai.ollama.base-url=" + stub.baseUrl());
+        args.add("--spring.ai.vectorstore.pgvector.dimensions=" + options.stub().dimensions());
+        // Later arguments win, so explicit --rag.* and --spring.* options override the above
+        args.addAll(options.applicationArgs());
+        return new SpringApplicationBuilder(RagappApplication.class)
+                .profiles("loadtest")
+                .run(args.toArray(String[]::new));
+    }
+
+    private static void seed(HttpClient client, String baseUrl, int documents)
+            throws IOException, InterruptedException {
+        for (int i = 0; i < documents; i++) {
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/api/rag/add"))
+                    .header("Content-Type", "text/plain")
+                    .POST(HttpRequest.BodyPublishers.ofString(Scenario.document(i, 800)))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 400) {
+                throw new IllegalStateException("Seeding failed with HTTP " + response.statusCode());
+            }
+        }
+        if (documents > 0) {
+            System.out.printf("Seeded %d documents%n", documents);
+        }
+    }
+
+    /**
+     * Calls that reached the model; fewer than requests when answers came
+     * from the cache or were coalesced. Includes the warm-up.
+     */
+    private static void printModelCalls(StubOllamaServer.Stats before, StubOllamaServer.Stats after) {
+        System.out.printf("  model     %d chat, %d streamed chat, %d embedding requests (%d texts)%n",
+                after.chatCalls() - before.chatCalls(), after.streamedChatCalls() - before.streamedChatCalls(),
+                after.embedCalls() - before.embedCalls(), after.embeddedTexts() - before.embeddedTexts());
+    }
+}
@@ -0,0 +1,123 @@
+package com.ragapp.ragapp.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line options of {@link LoadTest} and {@link StubOllamaServer}, as
+ * {@code --name value} pairs. Options starting with {@code --spring.},
+ * {@code --rag.}, {@code --server.} or {@code --management.} are passed on to
+ * the application as {@code --name=value}.
+ *
+ * @param scenarios       scenarios to run one after the other
+ * @param clients         concurrent clients, each sending its next request as
+ *                        soon as the previous one completes
+ * @param target          base URL of an application started separately, or
+ *                        {@code null} to start one in this JVM
+ * @param seedDocuments   documents added before the first scenario, so chat
+ *                        queries have something to retrieve
+ * @param distinctQueries size of the pool chat queries are drawn from; lower
+ *                        values raise the answer cache hit rate
+ * @param ingestKilobytes size of each uploaded file in the ingest scenario
+ */
+record LoadTestOptions(List<Scenario> scenarios, int clients, Duration warmup, Duration duration, String target,
+        int seedDocuments, int distinctQueries, int ingestKilobytes, StubOllamaServer.Options stub,
+        List<String> applicationArgs) {
+
+    static final String USAGE = """
+            Options (defaults in brackets):
+              --scenario LIST          chat, rag-chat, chat-stream, ingest, comma-separated [chat]
+              --clients N              concurrent clients [16]
+              --warmup DURATION        unmeasured run before each scenario [10s]
+              --duration DURATION      measured run per scenario [60s]
+              --target URL             test a running application instead of starting one
+              --seed-documents N       documents added before the first scenario [200]
+              --distinct-queries N     size of the chat query pool [1000]
+              --ingest-kb N            size of each uploaded file [64]
+              --port N                 stub Ollama port [11435]
+              --chat-latency DIST      first-token delay [lognormal:300:0.5]
+              --tokens-per-second N    generation rate [100]
+              --answer-tokens N        tokens per answer [120]
+              --embed-latency DIST     delay per embedding request [fixed:10]
+              --dimensions N           embedding dimensions [768]
+              --rag.*, --spring.*, ... passed on to the application
+            DIST is fixed:MS, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA.
+            """;
+
+    private static final List<String> APPLICATION_PREFIXES = List.of("spring.", "rag.", "server.", "management.");
+
+    static LoadTestOptions parse(String[] args) {
+        List<Scenario> scenarios = List.of(Scenario.CHAT);
+        int clients = 16;
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(60);
+        String target = null;
+        int seedDocuments = 200;
+        int distinctQueries = 1000;
+        int ingestKilobytes = 64;
+        StubOllamaServer.Options defaults = StubOllamaServer.Options.defaults();
+        int port = defaults.port();
+        LatencyDistribution chatLatency = defaults.chatLatency();
+        double tokensPerSecond = defaults.tokensPerSecond();
+        int answerTokens = defaults.answerTokens();
+        LatencyDistribution embedLatency = defaults.embedLatency();
+        int dimensions = defaults.dimensions();
+        List<String> applicationArgs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (!name.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + name + "\n" + USAGE);
+            }
+            String key = name.substring(2);
+            String value;
+            int equals = key.indexOf('=');
+            if (equals >= 0) {
+                value = key.substring(equals + 1);
+                key = key.substring(0, equals);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for " + name + "\n" + USAGE);
+            }
+            if (APPLICATION_PREFIXES.stream().anyMatch(key::startsWith)) {
+                applicationArgs.add("--" + key + "=" + value);
+                continue;
+            }
+            switch (key) {
+                case "scenario" -> scenarios = Scenario.parseList(value);
+                case "clients" -> clients = positive(key, Integer.parseInt(value));
+                case "warmup" -> warmup = DurationStyle.detectAndParse(value);
+                case "duration" -> duration = DurationStyle.detectAndParse(value);
+                case "target" -> target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "seed-documents" -> seedDocuments = Integer.parseInt(value);
+                case "distinct-queries" -> distinctQueries = positive(key, Integer.parseInt(value));
+                case "ingest-kb" -> ingestKilobytes = positive(key, Integer.parseInt(value));
+                case "port" -> port = Integer.parseInt(value);
+                case "chat-latency" -> chatLatency = LatencyDistribution.parse(value);
+                case "tokens-per-second" -> tokensPerSecond = Double.parseDouble(value);
+                case "answer-tokens" -> answerTokens = positive(key, Integer.parseInt(value));
+                case "embed-latency" -> embedLatency = LatencyDistribution.parse(value);
+                case "dimensions" -> dimensions = positive(key, Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown option " + name + "\n" + USAGE);
+            }
+        }
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("tokens-per-second must be positive");
+        }
+        return new LoadTestOptions(scenarios, clients, warmup, duration, target, seedDocuments, distinctQueries,
+                ingestKilobytes, new StubOllamaServer.Options(port, chatLatency, tokensPerSecond, answerTokens,
+                        embedLatency, dimensions),
+                List.copyOf(applicationArgs));
+    }
+
+    private static int positive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ragapp.ragapp.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The requests one load-test client sends, numbered from 0 across all
+ * clients.
+ */
+enum Scenario {
+
+    /** {@code GET /api/chat}: routed, cached and coalesced chat with references. */
+    CHAT("chat"),
+    /** {@code GET /api/rag/chat}: plain retrieval-augmented answer. */
+    RAG_CHAT("rag-chat"),
+    /** {@code GET /api/chat/stream}: the answer as Server-Sent Events. */
+    CHAT_STREAM("chat-stream"),
+    /** {@code POST /api/ingest}: upload of a generated text file. */
+    INGEST("ingest");
+
+    static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final String POLICY_TEXT = "Employees must submit expense claims within 30 days of incurring "
+            + "the expense. Claims above EUR 500 require approval from a cost-centre manager. Travel booked "
+            + "outside the corporate portal is reimbursed at economy rates only. ";
+
+    private static final String BOUNDARY = "ragapp-loadtest-boundary";
+
+    private final String name;
+
+    Scenario(String name) {
+        this.name = name;
+    }
+
+    String displayName() {
+        return name;
+    }
+
+    static List<Scenario> parseList(String value) {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : value.split(",")) {
+            String trimmed = name.trim().toLowerCase(Locale.ROOT);
+            Scenario scenario = null;
+            for (Scenario candidate : values()) {
+                if (candidate.name.equals(trimmed)) {
+                    scenario = candidate;
+                }
+            }
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + name);
+            }
+            scenarios.add(scenario);
+        }
+        return List.copyOf(scenarios);
+    }
+
+    HttpRequest request(String baseUrl, long n, LoadTestOptions options) {
+        String query = URLEncoder.encode("How are expense claims for policy " + (n % options.distinctQueries())
+                + " approved?", StandardCharsets.UTF_8);
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        return switch (this) {
+            case CHAT -> builder.uri(URI.create(baseUrl + "/api/chat?query=" + query)).GET().build();
+            case RAG_CHAT -> builder.uri(URI.create(baseUrl + "/api/rag/chat?query=" + query)).GET().build();
+            case CHAT_STREAM -> builder.uri(URI.create(baseUrl + "/api/chat/stream?query=" + query))
+                    .header("Accept", "text/event-stream")
+                    .GET()
+                    .build();
+            case INGEST -> builder.uri(URI.create(baseUrl + "/api/ingest"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(upload(n, options.ingestKilobytes())))
+                    .build();
+        };
+    }
+
+    /**
+     * Text of a seed document, unique per index.
+     */
+    static String document(int index, int chars) {
+        StringBuilder sb = new StringBuilder("Policy " + index + ". ");
+        while (sb.length() < chars) {
+            sb.append(POLICY_TEXT);
+        }
+        return sb.substring(0, chars);
+    }
+
+    /**
+     * A multipart body with a text file whose every sentence is unique to the
+     * request, so incremental ingestion cannot reuse chunks of earlier uploads.
+     */
+    private static byte[] upload(long n, int kilobytes) {
+        StringBuilder text = new StringBuilder(kilobytes * 1024 + 256);
+        for (int section = 0; text.length() < kilobytes * 1024; section++) {
+            text.append("Section ").append(n).append('.').append(section).append(". ").append(POLICY_TEXT)
+                    .append('\n');
+        }
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"loadtest-" + n + ".txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + text
+                + "\r\n--" + BOUNDARY + "--\r\n";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,266 @@
+package com.ragapp.ragapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for Ollama's HTTP API, serving {@code /api/chat} (streamed or not),
+ * {@code /api/embed} and {@code /api/embeddings}, plus the model management
+ * calls Spring AI may make at start-up. Answers are generated at a fixed token
+ * rate after a first-token delay drawn from a {@link LatencyDistribution};
+ * embeddings are deterministic pseudo-random unit vectors derived from the
+ * text, so equal texts get equal vectors.
+ *
+ * <p>Classification prompts from the query router are answered with
+ * {@code KNOWLEDGE}, so every load-test query takes the retrieval path.
+ *
+ * <p>Runs on its own for testing an application started separately:
+ * <pre>
+ * ./mvnw -Ploadtest compile exec:exec -Dloadtest.main=com.ragapp.ragapp.loadtest.StubOllamaServer \
+ *     -Dloadtest.args="--chat-latency lognormal:300:0.5"
+ * </pre>
+ */
+final class StubOllamaServer implements AutoCloseable {
+
+    static final int DEFAULT_PORT = 11435;
+
+    private static final String CLASSIFICATION_PROMPT = "Classify the following user message";
+
+    private static final String[] WORDS = ("Based on the provided context, employees must submit expense claims "
+            + "within thirty days. Claims above the limit need approval from a cost-centre manager, and travel "
+            + "booked outside the corporate portal is reimbursed at economy rates only.").split(" ");
+
+    /**
+     * @param chatLatency      delay before the first token of an answer
+     * @param tokensPerSecond  generation rate after the first token
+     * @param answerTokens     length of each answer
+     * @param embedLatency     delay of each embedding request, whatever its
+     *                         batch size
+     * @param dimensions       embedding dimensions; must match
+     *                         {@code spring.ai.vectorstore.pgvector.dimensions}
+     */
+    record Options(int port, LatencyDistribution chatLatency, double tokensPerSecond, int answerTokens,
+            LatencyDistribution embedLatency, int dimensions) {
+
+        static Options defaults() {
+            return new Options(DEFAULT_PORT, LatencyDistribution.parse("lognormal:300:0.5"), 100, 120,
+                    LatencyDistribution.parse("fixed:10"), 768);
+        }
+    }
+
+    /**
+     * Requests served, for checking how many calls the caches and coalescing
+     * saved.
+     */
+    record Stats(long chatCalls, long streamedChatCalls, long embedCalls, long embeddedTexts) {
+    }
+
+    static {
+        // Without it, small responses wait for the client's delayed ACK (about 40 ms on Linux)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong chatCalls = new AtomicLong();
+    private final AtomicLong streamedChatCalls = new AtomicLong();
+    private final AtomicLong embedCalls = new AtomicLong();
+    private final AtomicLong embeddedTexts = new AtomicLong();
+
+    private StubOllamaServer(Options options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port()),
+                1024);
+        server.setExecutor(executor);
+        server.createContext("/api/chat", handler(this::chat));
+        server.createContext("/api/embed", handler(this::embed));
+        server.createContext("/api/embeddings", handler(this::embedLegacy));
+        server.createContext("/api/show", handler(exchange -> writeJson(exchange, Map.of("modelfile", ""))));
+        server.createContext("/api/pull", handler(exchange -> writeJson(exchange, Map.of("status", "success"))));
+        server.createContext("/api/tags", handler(exchange -> writeJson(exchange, Map.of("models", List.of()))));
+    }
+
+    /**
+     * Starts a server; with port 0, on any free port.
+     */
+    static StubOllamaServer start(Options options) throws IOException {
+        StubOllamaServer stub = new StubOllamaServer(options);
+        stub.server.start();
+        return stub;
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    Stats stats() {
+        return new Stats(chatCalls.get(), streamedChatCalls.get(), embedCalls.get(), embeddedTexts.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+
+    private static HttpHandler handler(Handler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                // The client went away mid-answer, or sent something we do not understand
+                if (exchange.getResponseCode() == -1) {
+                    exchange.sendResponseHeaders(500, -1);
+                }
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private void chat(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonNode request = readJson(exchange);
+        JsonNode messages = request.path("messages");
+        String prompt = messages.isEmpty() ? "" : messages.get(messages.size() - 1).path("content").asText();
+        String model = request.path("model").asText();
+        // Ollama streams unless told otherwise
+        boolean stream = request.path("stream").asBoolean(true);
+        List<String> tokens = prompt.contains(CLASSIFICATION_PROMPT) ? List.of("KNOWLEDGE") : answer();
+        long tokenNanos = Math.round(1_000_000_000 / options.tokensPerSecond());
+
+        if (!stream) {
+            chatCalls.incrementAndGet();
+            options.chatLatency().pause();
+            Thread.sleep(Duration.ofNanos(tokenNanos * (tokens.size() - 1)));
+            writeJson(exchange, chatChunk(model, String.join("", tokens), true, tokens.size()));
+            return;
+        }
+
+        streamedChatCalls.incrementAndGet();
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        options.chatLatency().pause();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                Thread.sleep(Duration.ofNanos(tokenNanos));
+            }
+            writeLine(out, chatChunk(model, tokens.get(i), false, 0));
+        }
+        writeLine(out, chatChunk(model, "", true, tokens.size()));
+    }
+
+    private List<String> answer() {
+        List<String> tokens = new ArrayList<>(options.answerTokens());
+        for (int i = 0; i < options.answerTokens(); i++) {
+            tokens.add(i == 0 ? WORDS[0] : " " + WORDS[i % WORDS.length]);
+        }
+        return tokens;
+    }
+
+    private Map<String, Object> chatChunk(String model, String content, boolean done, int evalCount) {
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("model", model);
+        chunk.put("created_at", Instant.now().toString());
+        chunk.put("message", Map.of("role", "assistant", "content", content));
+        chunk.put("done", done);
+        if (done) {
+            chunk.put("done_reason", "stop");
+            chunk.put("prompt_eval_count", 0);
+            chunk.put("eval_count", evalCount);
+        }
+        return chunk;
+    }
+
+    private void embed(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonNode request = readJson(exchange);
+        JsonNode input = request.path("input");
+        List<float[]> embeddings = new ArrayList<>();
+        if (input.isArray()) {
+            input.forEach(text -> embeddings.add(vector(text.asText())));
+        } else {
+            embeddings.add(vector(input.asText()));
+        }
+        embedCalls.incrementAndGet();
+        embeddedTexts.addAndGet(embeddings.size());
+        options.embedLatency().pause();
+        writeJson(exchange, Map.of("model", request.path("model").asText(), "embeddings", embeddings));
+    }
+
+    private void embedLegacy(HttpExchange exchange) throws IOException, InterruptedException {
+        JsonNode request = readJson(exchange);
+        embedCalls.incrementAndGet();
+        embeddedTexts.incrementAndGet();
+        options.embedLatency().pause();
+        writeJson(exchange, Map.of("embedding", vector(request.path("prompt").asText())));
+    }
+
+    private float[] vector(String text) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        float[] vector = new float[options.dimensions()];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private JsonNode readJson(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private void writeJson(HttpExchange exchange, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void writeLine(OutputStream out, Object body) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(body));
+        out.write('\n');
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = LoadTestOptions.parse(args).stub();
+        StubOllamaServer stub = start(options);
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        System.out.printf("Stub Ollama listening on %s (%.0f tokens/s, %d tokens per answer)%n",
+                stub.baseUrl(), options.tokensPerSecond(), options.answerTokens());
+    }
+}
@@ -0,0 +1,49 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link ChatModel} decorator that admits every call through the
+ * {@link ModelBulkhead}, as {@link ModelBulkhead.Workload#CHAT} unless the
+ * caller chose another workload. A streamed answer holds its slot until the
+ * stream terminates.
+ */
+public class BulkheadChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final ModelBulkhead bulkhead;
+    private final Scheduler blockingScheduler;
+
+    public BulkheadChatModel(ChatModel delegate, ModelBulkhead bulkhead, Scheduler blockingScheduler) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return bulkhead.call(ModelBulkhead.currentWorkload(ModelBulkhead.Workload.CHAT),
+                () -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        ModelBulkhead.Workload workload = ModelBulkhead.currentWorkload(ModelBulkhead.Workload.CHAT);
+        return Flux.defer(() -> {
+            ModelBulkhead.Permit permit = bulkhead.acquire(workload);
+            return delegate.stream(prompt).doFinally(signal -> permit.close());
+        })
+                // Waiting for a slot blocks
+                .subscribeOn(blockingScheduler);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that admits every call through the
+ * {@link ModelBulkhead}. Single texts are search queries
+ * ({@link ModelBulkhead.Workload#QUERY_EMBEDDING}); batches and documents
+ * come from ingestion ({@link ModelBulkhead.Workload#INGESTION}), the same
+ * split {@link CachingEmbeddingModel} relies on.
+ */
+public class BulkheadEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final ModelBulkhead bulkhead;
+
+    public BulkheadEmbeddingModel(EmbeddingModel delegate, ModelBulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return bulkhead.call(ModelBulkhead.currentWorkload(ModelBulkhead.Workload.QUERY_EMBEDDING),
+                () -> delegate.embed(text));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return bulkhead.call(ModelBulkhead.currentWorkload(ModelBulkhead.Workload.INGESTION),
+                () -> delegate.embed(document));
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return bulkhead.call(ModelBulkhead.currentWorkload(ModelBulkhead.Workload.INGESTION),
+                () -> delegate.call(request));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,38 @@
+package com.ragapp.ragapp;
+
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final SemanticAnswerCache answerCache;
+    private final QueryEmbeddingCache embeddingCache;
+
+    public CacheController(SemanticAnswerCache answerCache, QueryEmbeddingCache embeddingCache) {
+        this.answerCache = answerCache;
+        this.embeddingCache = embeddingCache;
+    }
+
+    @GetMapping("/answers")
+    public SemanticAnswerCache.Stats answerStats() {
+        return answerCache.stats();
+    }
+
+    @DeleteMapping("/answers")
+    public SemanticAnswerCache.Stats clearAnswers() {
+        answerCache.invalidate();
+        return answerCache.stats();
+    }
+
+    @GetMapping("/embeddings")
+    public QueryEmbeddingCache.Stats embeddingStats() {
+        return embeddingCache.stats();
+    }
+
+    @DeleteMapping("/embeddings")
+    public QueryEmbeddingCache.Stats clearEmbeddings() {
+        embeddingCache.clear();
+        return embeddingCache.stats();
+    }
+}
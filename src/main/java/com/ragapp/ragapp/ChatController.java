@@ -1,8 +1,10 @@
 package com.ragapp.ragapp;
 
 import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 
@@ -19,14 +21,24 @@ public class ChatController {
     }
 
     @PostMapping("/ingest")
-    public String ingest(@RequestParam("file") MultipartFile file) throws IOException {
+    public IngestionResult ingest(@RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) Boolean incremental) throws IOException {
         Resource resource = file.getResource();
-        ingestionService.ingest(resource);
-        return "File ingested successfully: " + file.getOriginalFilename();
+        return ingestionService.ingest(resource, file.getOriginalFilename(), incremental);
     }
 
     @GetMapping("/chat")
     public ChatResponse chat(@RequestParam String query) {
         return chatService.chat(query);
     }
+
+    /**
+     * Streams the answer as Server-Sent Events (or NDJSON when requested via
+     * the Accept header): references first, then tokens as they are generated.
+     */
+    @GetMapping(value = "/chat/stream", produces = { MediaType.TEXT_EVENT_STREAM_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<ChatStreamEvent> chatStream(@RequestParam String query) {
+        return chatService.chatStream(query);
+    }
 }
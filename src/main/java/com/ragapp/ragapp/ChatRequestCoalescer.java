@@ -0,0 +1,113 @@
+package com.ragapp.ragapp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical chat requests. While a request for a
+ * query is in flight, further requests for the same query (after
+ * {@link QueryNormalizer normalization}) do not start their own pipeline but
+ * wait for the first one and share its result, or its error. This covers
+ * bursts of the same question that arrive before the
+ * {@link SemanticAnswerCache} has an answer to serve.
+ *
+ * <p>Streams are shared the same way: a request that joins late first gets
+ * the events emitted so far, then follows the live stream. A shared stream
+ * runs to completion even if its subscribers cancel, so the finished answer
+ * still reaches the answer cache.
+ */
+@Component
+public class ChatRequestCoalescer {
+
+    static final String CALL = "call";
+    static final String STREAM = "stream";
+
+    private final RagMetrics metrics;
+    private final boolean enabled;
+    private final ConcurrentMap<String, CompletableFuture<ChatResponse>> calls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Flux<ChatStreamEvent>> streams = new ConcurrentHashMap<>();
+
+    public ChatRequestCoalescer(RagMetrics metrics,
+            @Value("${rag.chat.coalescing.enabled:true}") boolean enabled) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Runs {@code pipeline} for the query, unless the same query is already
+     * in flight, in which case its response is awaited and returned instead.
+     */
+    public ChatResponse call(String query, Supplier<ChatResponse> pipeline) {
+        if (!enabled) {
+            return pipeline.get();
+        }
+        String key = QueryNormalizer.normalize(query);
+        CompletableFuture<ChatResponse> call = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            metrics.recordCoalescing(CALL, true);
+            return await(inFlight);
+        }
+        metrics.recordCoalescing(CALL, false);
+        try {
+            ChatResponse response = pipeline.get();
+            call.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #call}: subscribers to the same query share
+     * one subscription to the stream created by {@code pipeline}.
+     */
+    public Flux<ChatStreamEvent> stream(String query, Supplier<Flux<ChatStreamEvent>> pipeline) {
+        if (!enabled) {
+            return pipeline.get();
+        }
+        return Flux.defer(() -> {
+            String key = QueryNormalizer.normalize(query);
+            AtomicReference<Flux<ChatStreamEvent>> created = new AtomicReference<>();
+            Flux<ChatStreamEvent> shared = streams.computeIfAbsent(key, k -> {
+                AtomicReference<Flux<ChatStreamEvent>> self = new AtomicReference<>();
+                Flux<ChatStreamEvent> flux = pipeline.get()
+                        .doFinally(signal -> streams.remove(k, self.get()))
+                        .cache();
+                self.set(flux);
+                created.set(flux);
+                return flux;
+            });
+            metrics.recordCoalescing(STREAM, created.get() == null);
+            return shared;
+        });
+    }
+
+    private static ChatResponse await(CompletableFuture<ChatResponse> inFlight) {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced chat request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Coalesced chat request failed", e.getCause());
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.ragapp.ragapp;
 
 import java.util.List;
+import java.util.Map;
 
 /**
- * Response DTO that bundles the AI answer with source document references.
+ * Response DTO that bundles the AI answer with source document references,
+ * the routing decision that selected the answer path, and the time spent in
+ * each stage of the request (milliseconds, keyed by stage name).
  */
-public record ChatResponse(String answer, List<Reference> references) {
+public record ChatResponse(String answer, List<Reference> references, QueryRoute route,
+        Map<String, Long> timingsMs) {
 
     /**
      * Represents a source document excerpt used to generate the answer.
@@ -16,17 +20,24 @@ public record ChatResponse(String answer, List<Reference> references) {
     /**
      * Creates a ChatResponse with no references (e.g., for greetings).
      */
-    public static ChatResponse withoutReferences(String answer) {
-        return new ChatResponse(answer, List.of());
+    public static ChatResponse withoutReferences(String answer, QueryRoute route) {
+        return new ChatResponse(answer, List.of(), route, Map.of());
     }
 
     /**
      * Creates a ChatResponse with references from document excerpts.
      */
-    public static ChatResponse withReferences(String answer, List<String> sourceExcerpts) {
+    public static ChatResponse withReferences(String answer, List<String> sourceExcerpts, QueryRoute route) {
         List<Reference> refs = sourceExcerpts.stream()
                 .map(Reference::new)
                 .toList();
-        return new ChatResponse(answer, refs);
+        return new ChatResponse(answer, refs, route, Map.of());
+    }
+
+    /**
+     * Returns a copy of this response carrying the given stage timings.
+     */
+    public ChatResponse withTimings(Map<String, Long> timingsMs) {
+        return new ChatResponse(answer, references, route, timingsMs);
     }
 }
@@ -1,74 +1,284 @@
 package com.ragapp.ragapp;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class ChatService {
 
-    private final VectorStore vectorStore;
+    private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+
+    private final ContextBuilder contextBuilder;
+    private final EmbeddingModel embeddingModel;
     private final ChatClient chatClient;
+    private final QueryRouter queryRouter;
+    private final SemanticAnswerCache answerCache;
+    private final RagMetrics metrics;
+    private final ChatRequestCoalescer coalescer;
+    private final boolean speculativeRetrieval;
+    private final int chatEfSearch;
+    private final int streamEfSearch;
+    private final ExecutorService speculativeExecutor;
+    private final Scheduler blockingScheduler;
 
-    public ChatService(VectorStore vectorStore, ChatClient.Builder chatClientBuilder) {
-        this.vectorStore = vectorStore;
+    public ChatService(ContextBuilder contextBuilder, EmbeddingModel embeddingModel,
+            ChatClient.Builder chatClientBuilder, QueryRouter queryRouter, SemanticAnswerCache answerCache,
+            RagMetrics metrics, ChatRequestCoalescer coalescer,
+            @Qualifier("speculativeExecutor") ExecutorService speculativeExecutor, Scheduler blockingScheduler,
+            @Value("${rag.chat.speculative-retrieval:true}") boolean speculativeRetrieval,
+            @Value("${rag.chat.ef-search:0}") int chatEfSearch,
+            @Value("${rag.chat.stream.ef-search:0}") int streamEfSearch) {
+        this.contextBuilder = contextBuilder;
+        this.embeddingModel = embeddingModel;
         this.chatClient = chatClientBuilder.build();
+        this.queryRouter = queryRouter;
+        this.answerCache = answerCache;
+        this.metrics = metrics;
+        this.coalescer = coalescer;
+        this.speculativeExecutor = speculativeExecutor;
+        this.blockingScheduler = blockingScheduler;
+        this.speculativeRetrieval = speculativeRetrieval;
+        this.chatEfSearch = chatEfSearch;
+        this.streamEfSearch = streamEfSearch;
     }
 
     /**
-     * Classifies whether the user query is a knowledge/document question
-     * or a casual/greeting message using a quick LLM call.
+     * Answers a query. Identical queries already in flight share one pipeline
+     * run, see {@link ChatRequestCoalescer}. Searches with
+     * {@code rag.chat.ef-search}; the streaming endpoint has its own
+     * {@code rag.chat.stream.ef-search}, so each can trade recall for latency
+     * (0 keeps the database default).
      */
-    private boolean isKnowledgeQuery(String query) {
-        String classificationPrompt = """
-                Classify the following user message as either "KNOWLEDGE" or "CASUAL".
+    public ChatResponse chat(String query) {
+        return coalescer.call(query, () -> answer(query));
+    }
 
-                - KNOWLEDGE: The user is asking a question that requires looking up information from documents, policies, or stored knowledge.
-                - CASUAL: The user is sending a greeting, small talk, or a message that does not require any document lookup (e.g., "hi", "hello", "how are you", "thanks", "bye").
+    private ChatResponse answer(String query) {
+        StageTimer timer = new StageTimer();
 
-                Respond with ONLY the single word: KNOWLEDGE or CASUAL
+        // Step 1: Classify the query and, for knowledge queries, retrieve context
+        Plan plan = plan(query, chatEfSearch, timer);
+        if (!plan.route().isKnowledge()) {
+            // Casual/greeting message — respond directly without RAG context
+            String directResponse = timer.time("generation", () -> generate(query, plan.route()));
+            return finish(ChatResponse.withoutReferences(directResponse, plan.route()), timer);
+        }
 
-                User message: %s
-                """
-                .formatted(query);
+        // Step 2: Serve repeated questions from the semantic answer cache
+        Retrieval retrieval = plan.retrieval();
+        if (retrieval.probe().hit()) {
+            return finish(retrieval.probe().cached(), timer);
+        }
 
-        String classification = chatClient.prompt()
-                .user(classificationPrompt)
-                .call()
-                .content();
+        // Step 3: Construct the prompt with context and generate
+        String answer = timer.time("generation",
+                () -> generate(buildPrompt(retrieval.excerpts(), query), plan.route()));
 
-        return classification != null && classification.trim().toUpperCase().contains("KNOWLEDGE");
+        // Step 4: Return answer with references
+        ChatResponse response = ChatResponse.withReferences(answer, retrieval.excerpts(), plan.route());
+        answerCache.put(retrieval.probe(), response);
+        return finish(response, timer);
     }
 
-    public ChatResponse chat(String query) {
-        // Step 1: Classify the query
-        if (!isKnowledgeQuery(query)) {
-            // Casual/greeting message — respond directly without RAG context
-            String directResponse = chatClient.prompt()
-                    .user(query)
-                    .call()
-                    .content();
-            return ChatResponse.withoutReferences(directResponse);
+    /**
+     * Streaming variant of {@link #chat(String)}. Emits the references first,
+     * then the answer tokens as the model produces them.
+     */
+    public Flux<ChatStreamEvent> chatStream(String query) {
+        return coalescer.stream(query, () -> answerStream(query));
+    }
+
+    private Flux<ChatStreamEvent> answerStream(String query) {
+        return Flux.defer(() -> {
+            StageTimer timer = new StageTimer();
+            Plan plan = plan(query, streamEfSearch, timer);
+            QueryRoute route = plan.route();
+            if (!route.isKnowledge()) {
+                return streamAnswer(ChatStreamEvent.references(route, List.of()), query, timer);
+            }
+
+            Retrieval retrieval = plan.retrieval();
+            if (retrieval.probe().hit()) {
+                return replay(retrieval.probe().cached())
+                        .doOnComplete(() -> recordStages(route, timer));
+            }
+
+            List<String> sourceExcerpts = retrieval.excerpts();
+            StringBuilder answer = new StringBuilder();
+            return streamAnswer(ChatStreamEvent.references(route, sourceExcerpts),
+                    buildPrompt(sourceExcerpts, query), timer)
+                    .doOnNext(event -> {
+                        if (event.type() == ChatStreamEvent.Type.TOKEN) {
+                            answer.append(event.token());
+                        }
+                    })
+                    .doOnComplete(() -> answerCache.put(retrieval.probe(),
+                            ChatResponse.withReferences(answer.toString(), sourceExcerpts, route)));
+        })
+                // Routing and retrieval block, so keep them off the subscriber's thread
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Routing decision plus, for knowledge queries, the retrieved context.
+     */
+    private record Plan(QueryRoute route, Retrieval retrieval) {
+    }
+
+    /**
+     * Semantic cache probe and, on a miss, the retrieved excerpts.
+     */
+    private record Retrieval(SemanticAnswerCache.Probe probe, List<String> excerpts) {
+    }
+
+    /**
+     * Routes the query and retrieves context for knowledge queries. With
+     * {@code rag.chat.speculative-retrieval} enabled, retrieval starts on the
+     * speculative executor at the same time as routing, on the bet that the query
+     * is a knowledge question; its result is discarded if it is not.
+     */
+    private Plan plan(String query, int efSearch, StageTimer timer) {
+        Future<Retrieval> speculative = speculativeRetrieval
+                ? speculativeExecutor.submit(() -> timer.time("retrieval", () -> retrieve(query, efSearch, timer)))
+                : null;
+
+        QueryRoute route = timer.time("classification", () -> queryRouter.route(query));
+        if (!route.isKnowledge()) {
+            if (speculative != null) {
+                // Not interrupted: interrupting a virtual thread in socket I/O closes the socket, which would cost
+                // a pooled database or Ollama connection. A running retrieval finishes and warms the query cache
+                speculative.cancel(false);
+            }
+            return new Plan(route, null);
+        }
+
+        Retrieval retrieval = speculative != null
+                ? timer.time("retrieval-wait", () -> await(speculative))
+                : timer.time("retrieval", () -> retrieve(query, efSearch, timer));
+        if (!retrieval.probe().hit()) {
+            int contextChars = retrieval.excerpts().stream().mapToInt(String::length).sum();
+            metrics.recordContext(RagMetrics.CHAT_PIPELINE, RagMetrics.path(route), retrieval.excerpts().size(),
+                    contextChars);
+        }
+        return new Plan(route, retrieval);
+    }
+
+    private Retrieval retrieve(String query, int efSearch, StageTimer timer) {
+        // Embedding the query up front fills the query embedding cache, so the
+        // answer cache and the vector store below reuse it; this separates
+        // embedding latency from search latency
+        timer.time("embedding", () -> embeddingModel.embed(query));
+        SemanticAnswerCache.Probe probe = timer.time("answer-cache", () -> answerCache.lookup(query));
+        if (probe.hit()) {
+            return new Retrieval(probe, List.of());
         }
+        return new Retrieval(probe, timer.time("search", () -> contextBuilder.build(query, efSearch)));
+    }
+
+    private static Retrieval await(Future<Retrieval> retrieval) {
+        try {
+            return retrieval.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for retrieval", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Retrieval failed", e.getCause());
+        }
+    }
+
+    private ChatResponse finish(ChatResponse response, StageTimer timer) {
+        ChatResponse timed = response.withTimings(timer.finish());
+        metrics.recordStages(RagMetrics.CHAT_PIPELINE, RagMetrics.path(timed.route()), timer);
+        log.debug("Chat request ({}, speculative={}) stage timings: {}",
+                timed.route().intent(), speculativeRetrieval, timed.timingsMs());
+        return timed;
+    }
+
+    private void recordStages(QueryRoute route, StageTimer timer) {
+        timer.finish();
+        metrics.recordStages(RagMetrics.CHAT_PIPELINE, RagMetrics.path(route), timer);
+    }
 
-        // Step 2: Knowledge query — retrieve similar documents
-        List<Document> similarDocuments = vectorStore.similaritySearch(
-                SearchRequest.query(query).withTopK(3));
+    private String generate(String prompt, QueryRoute route) {
+        org.springframework.ai.chat.model.ChatResponse response = chatClient.prompt()
+                .user(prompt)
+                .call()
+                .chatResponse();
+        metrics.recordTokens(RagMetrics.CHAT_PIPELINE, RagMetrics.path(route), response.getMetadata().getUsage());
+        return response.getResult().getOutput().getContent();
+    }
+
+    /**
+     * Streams the model's answer between the references and the done event.
+     * Records time to first token, generation time and, once the stream
+     * completes, token usage and all stage timings.
+     */
+    private Flux<ChatStreamEvent> streamAnswer(ChatStreamEvent references, String prompt, StageTimer timer) {
+        QueryRoute route = references.route();
+        Flux<ChatStreamEvent> tokens = Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean();
+            // Usage is only reported on the final chunk
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            return chatClient.prompt()
+                    .user(prompt)
+                    .stream()
+                    .chatResponse()
+                    .doOnNext(chunk -> {
+                        Usage chunkUsage = chunk.getMetadata().getUsage();
+                        if (chunkUsage != null && chunkUsage.getTotalTokens() != null
+                                && chunkUsage.getTotalTokens() > 0) {
+                            usage.set(chunkUsage);
+                        }
+                    })
+                    .mapNotNull(chunk -> chunk.getResult() != null ? chunk.getResult().getOutput().getContent() : null)
+                    .doOnNext(token -> {
+                        if (firstToken.compareAndSet(false, true)) {
+                            timer.record("first-token", System.nanoTime() - start);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        timer.record("generation", System.nanoTime() - start);
+                        metrics.recordTokens(RagMetrics.CHAT_PIPELINE, RagMetrics.path(route), usage.get());
+                    })
+                    .map(ChatStreamEvent::token);
+        });
+        return Flux.concat(Flux.just(references), tokens, Flux.just(ChatStreamEvent.done()))
+                .doOnComplete(() -> recordStages(route, timer));
+    }
 
-        // Collect document content excerpts for references
-        List<String> sourceExcerpts = similarDocuments.stream()
-                .map(Document::getContent)
+    private Flux<ChatStreamEvent> replay(ChatResponse cached) {
+        List<String> sourceExcerpts = cached.references().stream()
+                .map(ChatResponse.Reference::content)
                 .toList();
+        return Flux.just(
+                ChatStreamEvent.references(cached.route(), sourceExcerpts),
+                ChatStreamEvent.token(cached.answer()),
+                ChatStreamEvent.done());
+    }
 
+    private String buildPrompt(List<String> sourceExcerpts, String query) {
         String context = String.join("\n\n---\n\n", sourceExcerpts);
 
-        // Step 3: Construct the prompt with context
-        String prompt = """
+        return """
                 Answer the question based on the following context. Use the information from the context to provide a helpful and accurate answer.
 
                 Context:
@@ -79,13 +289,5 @@ public class ChatService {
                 Provide a clear, well-formatted answer. If the context does not contain enough information to fully answer the question, say so and provide what you can.
                 """
                 .formatted(context, query);
-
-        String answer = chatClient.prompt()
-                .user(prompt)
-                .call()
-                .content();
-
-        // Step 4: Return answer with references
-        return ChatResponse.withReferences(answer, sourceExcerpts);
     }
 }
@@ -0,0 +1,33 @@
+package com.ragapp.ragapp;
+
+import java.util.List;
+
+/**
+ * One element of a streamed chat answer. A stream starts with a single
+ * {@link Type#REFERENCES} event carrying the routing decision and the source
+ * excerpts, continues with {@link Type#TOKEN} events as the model generates
+ * text, and ends with {@link Type#DONE}.
+ */
+public record ChatStreamEvent(Type type, QueryRoute route, List<ChatResponse.Reference> references, String token) {
+
+    public enum Type {
+        REFERENCES,
+        TOKEN,
+        DONE
+    }
+
+    public static ChatStreamEvent references(QueryRoute route, List<String> sourceExcerpts) {
+        List<ChatResponse.Reference> refs = sourceExcerpts.stream()
+                .map(ChatResponse.Reference::new)
+                .toList();
+        return new ChatStreamEvent(Type.REFERENCES, route, refs, null);
+    }
+
+    public static ChatStreamEvent token(String token) {
+        return new ChatStreamEvent(Type.TOKEN, null, null, token);
+    }
+
+    public static ChatStreamEvent done() {
+        return new ChatStreamEvent(Type.DONE, null, null, null);
+    }
+}
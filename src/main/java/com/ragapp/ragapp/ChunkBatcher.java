@@ -0,0 +1,55 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Groups chunks, in arrival order, into embedding batches of at most
+ * {@code maxChunks} chunks and {@code maxTokens} tokens. A chunk larger than
+ * {@code maxTokens} gets a batch of its own. Not thread-safe.
+ */
+final class ChunkBatcher {
+
+    private final int maxChunks;
+    private final int maxTokens;
+    private final ToIntFunction<String> tokenCount;
+    private List<Document> batch = new ArrayList<>();
+    private int batchTokens;
+
+    ChunkBatcher(int maxChunks, int maxTokens, ToIntFunction<String> tokenCount) {
+        this.maxChunks = maxChunks;
+        this.maxTokens = maxTokens;
+        this.tokenCount = tokenCount;
+    }
+
+    /**
+     * Adds a chunk.
+     *
+     * @return the batch the chunk did not fit into, now complete, or
+     *         {@code null}
+     */
+    List<Document> add(Document chunk) {
+        int tokens = tokenCount.applyAsInt(chunk.getContent());
+        List<Document> full = null;
+        if (!batch.isEmpty() && (batch.size() == maxChunks || batchTokens + tokens > maxTokens)) {
+            full = drain();
+        }
+        batch.add(chunk);
+        batchTokens += tokens;
+        return full;
+    }
+
+    /**
+     * Returns the chunks added since the last complete batch, possibly none,
+     * and starts a new batch.
+     */
+    List<Document> drain() {
+        List<Document> drained = batch;
+        batch = new ArrayList<>();
+        batchTokens = 0;
+        return drained;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Access to the chunk bookkeeping kept in the vector store's metadata, for the
+ * operations Spring AI's {@code VectorStore} does not offer. Implemented for
+ * PostgreSQL ({@link JdbcChunkRepository}) and for the in-process HNSW store
+ * ({@link HnswChunkRepository}).
+ */
+public interface ChunkRepository {
+
+    String SOURCE = "source";
+    String DOCUMENT_ID = "document_id";
+    String DOCUMENT_HASH = "document_hash";
+    String CHUNK_HASH = "chunk_hash";
+
+    /**
+     * A stored chunk's id and content hashes.
+     */
+    record StoredChunk(String id, String chunkHash, String documentHash) {
+    }
+
+    /**
+     * A source document and the number of chunks stored for it.
+     */
+    record StoredDocument(String documentId, String source, int chunks) {
+    }
+
+    /**
+     * A chunk as shown in the vector store grid: content capped at 1000
+     * characters and the first five embedding dimensions.
+     */
+    record ChunkPreview(String id, String source, String content, String embeddingPreview) {
+    }
+
+    List<StoredDocument> findDocuments();
+
+    /**
+     * Stores chunks with embeddings computed by the caller, replacing stored
+     * chunks with the same id.
+     *
+     * @param embeddings one embedding per chunk, in the same order
+     */
+    void insert(List<Document> chunks, List<float[]> embeddings);
+
+    List<StoredChunk> findBySource(String source);
+
+    /**
+     * Re-stamps reused chunks with the document id and the hash of the document
+     * revision they now belong to.
+     */
+    void restamp(List<String> ids, String documentId, String documentHash);
+
+    /**
+     * Deletes the given chunks in one operation.
+     *
+     * @return the number of chunks removed
+     */
+    int deleteByIds(Collection<String> ids);
+
+    /**
+     * Deletes every chunk of a source document.
+     *
+     * @return the number of chunks removed
+     */
+    int deleteByDocumentId(String documentId);
+
+    int countChunks();
+
+    /**
+     * Fetches a page of chunks ordered by id using keyset pagination.
+     *
+     * @param afterId id of the last chunk before the page, or {@code null} to
+     *                start from the beginning
+     * @param skip    chunks to skip after {@code afterId}; kept small by the caller
+     * @param limit   maximum number of chunks to return
+     */
+    List<ChunkPreview> findChunks(String afterId, int skip, int limit);
+}
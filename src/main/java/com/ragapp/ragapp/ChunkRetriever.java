@@ -0,0 +1,38 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.List;
+
+/**
+ * Finds the chunks to put into the prompt for a query. Configured by
+ * {@link RetrievalConfig}.
+ */
+public interface ChunkRetriever {
+
+    /**
+     * Returns up to {@code request.getTopK()} chunks, best first.
+     */
+    List<Document> retrieve(SearchRequest request);
+
+    /**
+     * Like {@link #retrieve(SearchRequest)}, with the size of the HNSW
+     * candidate list for this search only. Larger values raise recall and
+     * latency. Retrievers that cannot set it per search ignore it.
+     *
+     * @param efSearch candidate list size, or 0 for the configured default
+     */
+    default List<Document> retrieve(SearchRequest request, int efSearch) {
+        return retrieve(request);
+    }
+
+    /**
+     * Rows this retriever takes from the nearest-neighbour search for
+     * {@code request}. An HNSW scan returns at most {@code ef_search} rows, so
+     * a smaller {@code ef_search} would cut the list short.
+     */
+    default int vectorCandidates(SearchRequest request) {
+        return request.getTopK();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ragapp.ragapp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps a {@code vector_store} row selected as {@code id, content,
+ * metadata::text AS metadata, embedding::text AS embedding} plus one score
+ * column to a {@link Document}, the way the vector store would return it.
+ */
+final class ChunkRowMapper implements RowMapper<Document> {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final String scoreColumn;
+    private final String scoreKey;
+
+    /**
+     * @param scoreColumn result column holding the row's score
+     * @param scoreKey    metadata key the score is returned under
+     */
+    ChunkRowMapper(String scoreColumn, String scoreKey) {
+        this.scoreColumn = scoreColumn;
+        this.scoreKey = scoreKey;
+    }
+
+    @Override
+    public Document mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Map<String, Object> metadata = new HashMap<>(parseMetadata(rs.getString("metadata")));
+        metadata.put(scoreKey, rs.getDouble(scoreColumn));
+        Document document = new Document(rs.getString("id"), rs.getString("content"), metadata);
+        String embedding = rs.getString("embedding");
+        if (embedding != null) {
+            document.setEmbedding(new PGvector(embedding).toArray());
+        }
+        return document;
+    }
+
+    private static Map<String, Object> parseMetadata(String json) {
+        if (json == null) {
+            return Map.of();
+        }
+        try {
+            return JSON.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid chunk metadata: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Retrieves the context excerpts for a prompt and packs them into a token
+ * budget. Prompt tokens dominate generation latency on a small local model, so
+ * the budget caps them no matter how long the stored chunks are.
+ *
+ * <p>{@code rag.context.overfetch} times {@code rag.similarity.top-k}
+ * candidates above {@code rag.similarity.threshold} are fetched and, with
+ * {@code rag.context.mmr.enabled}, reordered by
+ * {@link MaximalMarginalRelevance} on their embeddings: near duplicates are
+ * dropped and {@code rag.context.mmr.lambda} trades relevance against
+ * diversity. They are then packed best first, up to top-k excerpts:
+ * <ul>
+ * <li>duplicate chunks (the same text ingested twice) are skipped</li>
+ * <li>the best chunk is truncated at a word boundary if it alone exceeds the
+ * budget</li>
+ * <li>a later chunk that does not fit is dropped, and smaller candidates
+ * further down the list may take its place</li>
+ * </ul>
+ *
+ * <p>Tokens are estimated from the length of the text
+ * ({@code rag.context.chars-per-token}); there is no tokenizer for the chat
+ * model on the JVM, and the estimate only has to keep the prompt well inside
+ * the context window.
+ */
+@Component
+public class ContextBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextBuilder.class);
+
+    private final ChunkRetriever chunkRetriever;
+    private final EmbeddingModel embeddingModel;
+    private final RagMetrics metrics;
+    private final int topK;
+    private final double similarityThreshold;
+    private final int overfetch;
+    private final int maxTokens;
+    private final double charsPerToken;
+    private final int minChunkTokens;
+    private final boolean mmrEnabled;
+    private final double mmrLambda;
+    private final double duplicateThreshold;
+
+    public ContextBuilder(ChunkRetriever chunkRetriever, EmbeddingModel embeddingModel, RagMetrics metrics,
+            @Value("${rag.similarity.top-k:3}") int topK,
+            @Value("${rag.similarity.threshold:0.5}") double similarityThreshold,
+            @Value("${rag.context.overfetch:3}") int overfetch,
+            @Value("${rag.context.max-tokens:1200}") int maxTokens,
+            @Value("${rag.context.chars-per-token:4}") double charsPerToken,
+            @Value("${rag.context.min-chunk-tokens:48}") int minChunkTokens,
+            @Value("${rag.context.mmr.enabled:true}") boolean mmrEnabled,
+            @Value("${rag.context.mmr.lambda:0.7}") double mmrLambda,
+            @Value("${rag.context.mmr.duplicate-threshold:0.95}") double duplicateThreshold) {
+        this.chunkRetriever = chunkRetriever;
+        this.embeddingModel = embeddingModel;
+        this.metrics = metrics;
+        this.topK = topK;
+        this.similarityThreshold = similarityThreshold;
+        this.overfetch = Math.max(1, overfetch);
+        this.maxTokens = maxTokens;
+        this.charsPerToken = charsPerToken;
+        this.minChunkTokens = minChunkTokens;
+        this.mmrEnabled = mmrEnabled;
+        this.mmrLambda = mmrLambda;
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    /**
+     * Retrieves and packs the context excerpts for a query, best first.
+     */
+    public List<String> build(String query) {
+        return build(query, 0);
+    }
+
+    /**
+     * Like {@link #build(String)}, with the HNSW candidate list size for this
+     * search, see {@link ChunkRetriever#retrieve(SearchRequest, int)}.
+     */
+    public List<String> build(String query, int efSearch) {
+        List<Document> candidates = chunkRetriever.retrieve(SearchRequest.query(query)
+                .withTopK(topK * overfetch)
+                .withSimilarityThreshold(similarityThreshold), efSearch);
+        List<String> contents = candidates.stream().map(Document::getContent).toList();
+        if (!mmrEnabled || candidates.size() < 2) {
+            return pack(contents);
+        }
+        List<float[]> embeddings = candidates.stream().map(Document::getEmbedding).toList();
+        if (embeddings.stream().anyMatch(embedding -> embedding == null || embedding.length == 0)) {
+            log.debug("Retrieved chunks carry no embeddings, keeping retrieval order");
+            return pack(contents);
+        }
+        // A cache hit: the retriever has just embedded the same query
+        float[] queryEmbedding = embeddingModel.embed(query);
+        List<Integer> ranked = MaximalMarginalRelevance.rank(queryEmbedding, embeddings, mmrLambda,
+                duplicateThreshold);
+        List<String> excerpts = pack(ranked.stream().map(contents::get).toList());
+        metrics.recordContextSelection(tokens(pack(contents)), tokens(excerpts), candidates.size() - ranked.size());
+        return excerpts;
+    }
+
+    /**
+     * Packs candidate excerpts, ordered best first, into the token budget.
+     */
+    List<String> pack(List<String> candidates) {
+        List<String> excerpts = new ArrayList<>(topK);
+        Set<String> seen = new HashSet<>();
+        int remaining = maxTokens;
+        int dropped = 0;
+        for (String candidate : candidates) {
+            if (excerpts.size() == topK || remaining < minChunkTokens) {
+                break;
+            }
+            if (candidate == null || candidate.isBlank() || !seen.add(candidate)) {
+                continue;
+            }
+            int tokens = estimateTokens(candidate);
+            if (tokens <= remaining) {
+                excerpts.add(candidate);
+                remaining -= tokens;
+            } else if (excerpts.isEmpty()) {
+                excerpts.add(truncate(candidate, remaining));
+                remaining = 0;
+            } else {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.debug("Dropped {} context chunks that did not fit the {}-token budget", dropped, maxTokens);
+        }
+        return excerpts;
+    }
+
+    private int tokens(List<String> excerpts) {
+        return excerpts.stream().mapToInt(this::estimateTokens).sum();
+    }
+
+    int estimateTokens(String text) {
+        return (int) Math.ceil(text.length() / charsPerToken);
+    }
+
+    private String truncate(String text, int tokens) {
+        // Leave room for the ellipsis
+        int limit = Math.max(1, (int) (tokens * charsPerToken) - 4);
+        int end = limit;
+        while (end > 0 && !Character.isWhitespace(text.charAt(end))) {
+            end--;
+        }
+        // A single very long word: cut it rather than return nothing
+        return text.substring(0, end > 0 ? end : limit).stripTrailing() + " ...";
+    }
+}
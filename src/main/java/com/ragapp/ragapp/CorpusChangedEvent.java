@@ -0,0 +1,8 @@
+package com.ragapp.ragapp;
+
+/**
+ * Published whenever documents are added to or removed from the vector store,
+ * so components holding derived state (such as cached answers) can drop it.
+ */
+public record CorpusChangedEvent(String reason) {
+}
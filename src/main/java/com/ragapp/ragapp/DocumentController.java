@@ -0,0 +1,44 @@
+package com.ragapp.ragapp;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/documents")
+public class DocumentController {
+
+    private final DocumentService documentService;
+
+    public DocumentController(DocumentService documentService) {
+        this.documentService = documentService;
+    }
+
+    @GetMapping
+    public List<ChunkRepository.StoredDocument> list() {
+        return documentService.listDocuments();
+    }
+
+    @DeleteMapping("/{documentId}")
+    public DocumentService.DeletionResult deleteDocument(@PathVariable String documentId) {
+        return documentService.deleteDocument(documentId);
+    }
+
+    /**
+     * @throws ResponseStatusException 400 if an id is not a chunk id (UUID)
+     */
+    @PostMapping("/chunks/delete")
+    public DocumentService.DeletionResult deleteChunks(@RequestBody List<String> ids) {
+        for (String id : ids) {
+            try {
+                UUID.fromString(id);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a chunk id: " + id);
+            }
+        }
+        return documentService.deleteChunks(ids);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Document-level management of the vector store: listing ingested documents
+ * and deleting whole documents or batches of chunks in a single statement.
+ */
+@Service
+public class DocumentService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentService.class);
+
+    private final ChunkRepository chunkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DocumentService(ChunkRepository chunkRepository, ApplicationEventPublisher eventPublisher) {
+        this.chunkRepository = chunkRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Outcome of a bulk delete.
+     */
+    public record DeletionResult(int rowsRemoved, long elapsedMs) {
+    }
+
+    public List<ChunkRepository.StoredDocument> listDocuments() {
+        return chunkRepository.findDocuments();
+    }
+
+    public DeletionResult deleteDocument(String documentId) {
+        return timedDelete(() -> chunkRepository.deleteByDocumentId(documentId), "document " + documentId);
+    }
+
+    public DeletionResult deleteChunks(Collection<String> ids) {
+        return timedDelete(() -> chunkRepository.deleteByIds(ids), ids.size() + " chunk id(s)");
+    }
+
+    private DeletionResult timedDelete(IntSupplier delete, String target) {
+        long start = System.nanoTime();
+        int rows = delete.getAsInt();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Deleted {} row(s) for {} in {} ms", rows, target, elapsedMs);
+        if (rows > 0) {
+            eventPublisher.publishEvent(new CorpusChangedEvent("delete"));
+        }
+        return new DeletionResult(rows, elapsedMs);
+    }
+}
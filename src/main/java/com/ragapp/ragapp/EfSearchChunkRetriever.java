@@ -0,0 +1,61 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Applies a per-search {@code hnsw.ef_search} to a pgvector retriever. The
+ * setting is made with {@code SET LOCAL} in a read-only transaction around the
+ * search, so it holds for that search's connection only and is reset when the
+ * transaction ends; the pooled connection goes back unchanged.
+ *
+ * <p>The connection is held for the whole search, including the retriever's
+ * query embedding. {@link ChatService} embeds the query before searching, so
+ * that is a cache hit.
+ */
+public class EfSearchChunkRetriever implements ChunkRetriever {
+
+    private final ChunkRetriever delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @param delegate retriever whose queries go through {@code jdbcTemplate}'s
+     *                 data source
+     */
+    public EfSearchChunkRetriever(ChunkRetriever delegate, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public List<Document> retrieve(SearchRequest request) {
+        return delegate.retrieve(request);
+    }
+
+    @Override
+    public int vectorCandidates(SearchRequest request) {
+        return delegate.vectorCandidates(request);
+    }
+
+    @Override
+    public List<Document> retrieve(SearchRequest request, int efSearch) {
+        if (efSearch <= 0) {
+            return delegate.retrieve(request);
+        }
+        // The HNSW scan returns at most ef_search rows, so never go below what the delegate fetches
+        int ef = Math.max(efSearch, delegate.vectorCandidates(request));
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + ef);
+            return delegate.retrieve(request);
+        });
+    }
+}
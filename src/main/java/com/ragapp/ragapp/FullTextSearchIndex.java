@@ -0,0 +1,228 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The full-text side of {@link HybridChunkRetriever}: a {@code tsvector}
+ * column on {@code vector_store} and its GIN index.
+ *
+ * <p>The {@code content_tsv} column is a plain column filled by a trigger on
+ * every insert or content update, so adding it is a catalog change only, and
+ * ingestion code is unchanged. (A generated column would rewrite the whole
+ * table and all its indexes under an exclusive lock.) Existing rows are
+ * converted by {@link #migrate}, online: rows are updated in small batches
+ * that skip locked rows, and the index is built {@code CONCURRENTLY}, so
+ * ingestion and chat keep running. Hybrid retrieval searches vectors only
+ * until it has finished.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.vectorstore.type", havingValue = "pgvector", matchIfMissing = true)
+public class FullTextSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FullTextSearchIndex.class);
+
+    static final String INDEX = "vector_store_content_tsv_idx";
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * Progress of the conversion.
+     *
+     * @param pending rows without a {@code tsvector} yet
+     */
+    public record Status(State state, boolean available, long rows, long pending, long indexBytes, String error) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean hybrid;
+    private final int batchRows;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile State state = State.IDLE;
+    private volatile String error;
+    private volatile boolean available;
+
+    public FullTextSearchIndex(JdbcTemplate jdbcTemplate, @Value("${rag.retrieval.mode:vector}") String mode,
+            @Value("${rag.vectorstore.pgvector.migration-batch-rows:1000}") int batchRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hybrid = "hybrid".equals(mode.trim().toLowerCase(Locale.ROOT));
+        this.batchRows = Math.max(1, batchRows);
+    }
+
+    /**
+     * With {@code rag.retrieval.mode=hybrid}, installs the column and trigger
+     * so new chunks are indexed, and checks whether existing rows still need
+     * converting. Runs once the vector store has created its table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepare() {
+        if (!hybrid) {
+            return;
+        }
+        try {
+            createColumnAndTrigger();
+            available = pendingRows() == 0 && indexExists();
+            if (!available) {
+                log.warn("Full-text index is incomplete, hybrid retrieval searches vectors only until "
+                        + "POST /api/vector-store/full-text/migrate has run");
+            }
+        } catch (Exception e) {
+            log.warn("Could not set up full-text search on vector_store, using vector-only retrieval: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Whether every row has a {@code tsvector} and the index on them exists,
+     * so full-text queries can run.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public Status status() {
+        boolean columnExists = Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM information_schema.columns
+                               WHERE table_name = 'vector_store' AND column_name = 'content_tsv')
+                """, Boolean.class));
+        long rows = count("SELECT count(*) FROM vector_store");
+        long pending = columnExists ? pendingRows() : rows;
+        return new Status(state, available, rows, pending,
+                count("SELECT coalesce(pg_relation_size(to_regclass('" + INDEX + "')), 0)"), error);
+    }
+
+    /**
+     * Starts {@link #migrate} in the background.
+     *
+     * @throws ResponseStatusException 409 if a migration is already running
+     */
+    public Status start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Migration already running");
+        }
+        state = State.RUNNING;
+        Thread.ofPlatform().name("full-text-migration").daemon().start(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.error("Full-text migration failed", e);
+            }
+        });
+        return status();
+    }
+
+    /**
+     * Computes the {@code tsvector} of all existing chunks and builds the GIN
+     * index on them, while the table stays in use.
+     */
+    public Status migrate() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Migration already running");
+        }
+        state = State.RUNNING;
+        run();
+        return status();
+    }
+
+    private void run() {
+        error = null;
+        try {
+            long start = System.nanoTime();
+            // A generated column fills itself
+            long converted = createColumnAndTrigger() ? 0 : backfill();
+            log.info("Computed {} tsvectors, building full-text index", converted);
+
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + INDEX
+                    + " ON vector_store USING gin (content_tsv)");
+            available = true;
+            state = State.DONE;
+            log.info("Full-text migration finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            state = State.FAILED;
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long backfill() {
+        long converted = 0;
+        int updated;
+        do {
+            // Each batch commits on its own and skips rows being written right now;
+            // the trigger covers those
+            updated = jdbcTemplate.update("""
+                    UPDATE vector_store SET content_tsv = to_tsvector('english', coalesce(content, ''))
+                    WHERE id IN (SELECT id FROM vector_store
+                                 WHERE content_tsv IS NULL
+                                 LIMIT ? FOR UPDATE SKIP LOCKED)
+                    """, batchRows);
+            converted += updated;
+        } while (updated > 0);
+        return converted;
+    }
+
+    /**
+     * @return whether the column is a generated column, which needs no
+     *         backfill
+     */
+    private boolean createColumnAndTrigger() {
+        // Without a default, adding the column does not rewrite the table
+        jdbcTemplate.execute("ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS content_tsv tsvector");
+        // Tables set up by earlier versions have it as a generated column, which fills itself and which a
+        // BEFORE trigger may not touch
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM information_schema.columns
+                               WHERE table_name = 'vector_store' AND column_name = 'content_tsv'
+                                 AND is_generated = 'ALWAYS')
+                """, Boolean.class))) {
+            return true;
+        }
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION vector_store_sync_content_tsv() RETURNS trigger AS $$
+                BEGIN
+                    NEW.content_tsv := to_tsvector('english', coalesce(NEW.content, ''));
+                    RETURN NEW;
+                END
+                $$ LANGUAGE plpgsql
+                """);
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS vector_store_sync_content_tsv ON vector_store");
+        jdbcTemplate.execute("""
+                CREATE TRIGGER vector_store_sync_content_tsv
+                BEFORE INSERT OR UPDATE OF content ON vector_store
+                FOR EACH ROW EXECUTE FUNCTION vector_store_sync_content_tsv()
+                """);
+        return false;
+    }
+
+    private long pendingRows() {
+        return count("SELECT count(*) FROM vector_store WHERE content_tsv IS NULL");
+    }
+
+    private boolean indexExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                INDEX));
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+}
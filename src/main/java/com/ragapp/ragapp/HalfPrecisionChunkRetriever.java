@@ -0,0 +1,103 @@
+package com.ragapp.ragapp;
+
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Vector search on the half-precision embeddings kept by
+ * {@link HalfPrecisionMigration}. The HNSW index on {@code embedding_half}
+ * finds the candidates; with re-ranking, the nearest
+ * {@code rerankCandidates} are then re-scored against their full-precision
+ * embedding (read from the heap, not from an index), which recovers most of
+ * the recall lost to rounding.
+ *
+ * <p>Until the migration has converted every row, searches go to the
+ * fallback, so no chunk is missed.
+ */
+public class HalfPrecisionChunkRetriever implements ChunkRetriever {
+
+    /**
+     * Parameters: query embedding, candidates, query embedding, max cosine
+     * distance, top k.
+     */
+    private static final String RERANK_QUERY = """
+            WITH candidates AS (
+                SELECT id
+                FROM vector_store
+                ORDER BY embedding_half <=> ?::halfvec
+                LIMIT ?
+            )
+            SELECT * FROM (
+                SELECT s.id, s.content, s.metadata::text AS metadata, s.embedding::text AS embedding,
+                       s.embedding <=> ? AS distance
+                FROM candidates c
+                JOIN vector_store s ON s.id = c.id
+            ) ranked
+            WHERE distance < ?
+            ORDER BY distance
+            LIMIT ?
+            """;
+
+    /**
+     * Parameters: query embedding, top k, max cosine distance.
+     */
+    private static final String HALF_QUERY = """
+            SELECT * FROM (
+                SELECT id, content, metadata::text AS metadata, embedding::text AS embedding,
+                       embedding_half <=> ?::halfvec AS distance
+                FROM vector_store
+                ORDER BY distance
+                LIMIT ?
+            ) nearest
+            WHERE distance < ?
+            """;
+
+    private static final ChunkRowMapper DOCUMENT_MAPPER = new ChunkRowMapper("distance", "distance");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final HalfPrecisionMigration migration;
+    private final ChunkRetriever fallback;
+    private final int rerankCandidates;
+
+    /**
+     * @param fallback         used until every row has a half-precision embedding
+     * @param rerankCandidates candidates re-scored at full precision, or 0 to
+     *                         rank by the half-precision distance alone
+     */
+    public HalfPrecisionChunkRetriever(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel,
+            HalfPrecisionMigration migration, ChunkRetriever fallback, int rerankCandidates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingModel = embeddingModel;
+        this.migration = migration;
+        this.fallback = fallback;
+        this.rerankCandidates = rerankCandidates;
+    }
+
+    @Override
+    public List<Document> retrieve(SearchRequest request) {
+        if (!migration.isReady()) {
+            return fallback.retrieve(request);
+        }
+        PGvector embedding = new PGvector(embeddingModel.embed(request.getQuery()));
+        double maxDistance = 1 - request.getSimilarityThreshold();
+        if (rerankCandidates <= 0) {
+            return jdbcTemplate.query(HALF_QUERY, DOCUMENT_MAPPER, embedding, request.getTopK(), maxDistance);
+        }
+        return jdbcTemplate.query(RERANK_QUERY, DOCUMENT_MAPPER,
+                embedding, vectorCandidates(request), embedding, maxDistance, request.getTopK());
+    }
+
+    @Override
+    public int vectorCandidates(SearchRequest request) {
+        if (!migration.isReady()) {
+            return fallback.vectorCandidates(request);
+        }
+        return Math.max(rerankCandidates, request.getTopK());
+    }
+}
@@ -0,0 +1,227 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a half-precision copy of every embedding in {@code vector_store} for
+ * {@link HalfPrecisionChunkRetriever}. A {@code halfvec} needs 2 bytes per
+ * dimension instead of 4, so its HNSW index is about half the size of the
+ * full-precision one and stays in shared buffers for twice the corpus.
+ *
+ * <p>The {@code embedding_half} column is filled by a trigger on every insert
+ * or embedding update, so ingestion code is unchanged. Existing rows are
+ * converted by {@link #migrate}, online: rows are updated in small batches
+ * that skip locked rows, and the index is built {@code CONCURRENTLY}, so
+ * ingestion and chat keep running. Needs pgvector 0.7 or later.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.vectorstore.type", havingValue = "pgvector", matchIfMissing = true)
+public class HalfPrecisionMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(HalfPrecisionMigration.class);
+
+    /**
+     * Name of the full-precision index created by Spring AI's pgvector store.
+     */
+    static final String FULL_INDEX = "spring_ai_vector_index";
+    static final String HALF_INDEX = "vector_store_embedding_half_idx";
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * Progress of the conversion and the size of both indexes.
+     *
+     * @param pending rows without a half-precision embedding yet
+     */
+    public record Status(State state, long rows, long pending, long fullIndexBytes, long halfIndexBytes,
+            String error) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean halfPrecision;
+    private final int dimensions;
+    private final int batchRows;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile State state = State.IDLE;
+    private volatile String error;
+    private volatile boolean ready;
+
+    public HalfPrecisionMigration(JdbcTemplate jdbcTemplate,
+            @Value("${rag.vectorstore.pgvector.precision:full}") String precision,
+            @Value("${spring.ai.vectorstore.pgvector.dimensions:768}") int dimensions,
+            @Value("${rag.vectorstore.pgvector.migration-batch-rows:1000}") int batchRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.halfPrecision = "half".equals(precision.trim().toLowerCase(Locale.ROOT));
+        this.dimensions = dimensions;
+        this.batchRows = Math.max(1, batchRows);
+    }
+
+    /**
+     * With {@code rag.vectorstore.pgvector.precision=half}, installs the column
+     * and trigger so new chunks get a half-precision copy, and checks whether
+     * existing rows still need converting. Runs once the vector store has
+     * created its table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepare() {
+        if (!halfPrecision) {
+            return;
+        }
+        try {
+            createColumnAndTrigger();
+            ready = pendingRows() == 0 && indexExists(HALF_INDEX);
+            if (!ready) {
+                log.warn("Half-precision embeddings are incomplete, searching full precision until "
+                        + "POST /api/vector-store/half-precision/migrate has run");
+            }
+        } catch (Exception e) {
+            log.warn("Could not set up half-precision embeddings (needs pgvector 0.7+): {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether every row has a half-precision embedding and the index on them
+     * exists.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Status status() {
+        boolean columnExists = Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM information_schema.columns
+                               WHERE table_name = 'vector_store' AND column_name = 'embedding_half')
+                """, Boolean.class));
+        long rows = count("SELECT count(*) FROM vector_store");
+        long pending = columnExists ? pendingRows() : rows;
+        return new Status(state, rows, pending, indexBytes(FULL_INDEX), indexBytes(HALF_INDEX), error);
+    }
+
+    /**
+     * Starts {@link #migrate} in the background.
+     *
+     * @throws ResponseStatusException 409 if a migration is already running
+     */
+    public Status start(boolean dropFullIndex) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Migration already running");
+        }
+        state = State.RUNNING;
+        Thread.ofPlatform().name("half-precision-migration").daemon().start(() -> {
+            try {
+                run(dropFullIndex);
+            } catch (RuntimeException e) {
+                log.error("Half-precision migration failed", e);
+            }
+        });
+        return status();
+    }
+
+    /**
+     * Converts all existing embeddings to half precision and builds the HNSW
+     * index on them, while the table stays in use.
+     *
+     * @param dropFullIndex also drop the full-precision HNSW index; only
+     *                      useful with {@code spring.ai.vectorstore.pgvector.index-type=NONE},
+     *                      otherwise the vector store recreates it on startup
+     */
+    public Status migrate(boolean dropFullIndex) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Migration already running");
+        }
+        state = State.RUNNING;
+        run(dropFullIndex);
+        return status();
+    }
+
+    private void run(boolean dropFullIndex) {
+        error = null;
+        try {
+            long start = System.nanoTime();
+            createColumnAndTrigger();
+            long converted = 0;
+            int updated;
+            do {
+                // Each batch commits on its own and skips rows being written right now;
+                // the trigger covers those
+                updated = jdbcTemplate.update("""
+                        UPDATE vector_store SET embedding_half = embedding::halfvec(%d)
+                        WHERE id IN (SELECT id FROM vector_store
+                                     WHERE embedding_half IS NULL AND embedding IS NOT NULL
+                                     LIMIT ? FOR UPDATE SKIP LOCKED)
+                        """.formatted(dimensions), batchRows);
+                converted += updated;
+            } while (updated > 0);
+            log.info("Converted {} embeddings to half precision, building index", converted);
+
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + HALF_INDEX
+                    + " ON vector_store USING hnsw (embedding_half halfvec_cosine_ops)");
+            if (dropFullIndex) {
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + FULL_INDEX);
+            }
+            ready = true;
+            state = State.DONE;
+            log.info("Half-precision migration finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            state = State.FAILED;
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void createColumnAndTrigger() {
+        jdbcTemplate.execute("ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS embedding_half halfvec(%d)"
+                .formatted(dimensions));
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION vector_store_sync_embedding_half() RETURNS trigger AS $$
+                BEGIN
+                    NEW.embedding_half := NEW.embedding::halfvec(%d);
+                    RETURN NEW;
+                END
+                $$ LANGUAGE plpgsql
+                """.formatted(dimensions));
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS vector_store_sync_embedding_half ON vector_store");
+        jdbcTemplate.execute("""
+                CREATE TRIGGER vector_store_sync_embedding_half
+                BEFORE INSERT OR UPDATE OF embedding ON vector_store
+                FOR EACH ROW EXECUTE FUNCTION vector_store_sync_embedding_half()
+                """);
+    }
+
+    private long pendingRows() {
+        return count("SELECT count(*) FROM vector_store WHERE embedding_half IS NULL AND embedding IS NOT NULL");
+    }
+
+    private boolean indexExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                name));
+    }
+
+    private long indexBytes(String name) {
+        return count("SELECT coalesce(pg_relation_size(to_regclass('" + name + "')), 0)");
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+}
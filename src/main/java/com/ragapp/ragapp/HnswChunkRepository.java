@@ -0,0 +1,114 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Chunk bookkeeping for the {@link HnswVectorStore}, answering the same
+ * queries as {@link JdbcChunkRepository} from the store's in-memory metadata.
+ */
+public class HnswChunkRepository implements ChunkRepository {
+
+    private static final int PREVIEW_DIMENSIONS = 5;
+    private static final int PREVIEW_CONTENT_CHARS = 1000;
+
+    private final HnswVectorStore store;
+
+    public HnswChunkRepository(HnswVectorStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<StoredDocument> findDocuments() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (HnswVectorStore.Entry entry : store.entries(metadata -> metadata.get(DOCUMENT_ID) != null)) {
+            String documentId = entry.metadata().get(DOCUMENT_ID).toString();
+            Object source = entry.metadata().get(SOURCE);
+            if (source != null) {
+                sources.merge(documentId, source.toString(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+            counts.merge(documentId, 1, Integer::sum);
+        }
+        List<StoredDocument> documents = new ArrayList<>();
+        counts.forEach((documentId, chunks) -> documents.add(
+                new StoredDocument(documentId, sources.get(documentId), chunks)));
+        documents.sort(Comparator.comparing(StoredDocument::source, Comparator.nullsLast(Comparator.naturalOrder())));
+        return documents;
+    }
+
+    @Override
+    public void insert(List<Document> chunks, List<float[]> embeddings) {
+        store.add(chunks, embeddings);
+    }
+
+    @Override
+    public List<StoredChunk> findBySource(String source) {
+        return store.entries(metadata -> source.equals(metadata.get(SOURCE))).stream()
+                .map(entry -> new StoredChunk(entry.id(),
+                        Objects.toString(entry.metadata().get(CHUNK_HASH), null),
+                        Objects.toString(entry.metadata().get(DOCUMENT_HASH), null)))
+                .toList();
+    }
+
+    @Override
+    public void restamp(List<String> ids, String documentId, String documentHash) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        store.updateMetadata(ids, Map.of(DOCUMENT_ID, documentId, DOCUMENT_HASH, documentHash));
+    }
+
+    @Override
+    public int deleteByIds(Collection<String> ids) {
+        return ids.isEmpty() ? 0 : store.remove(ids);
+    }
+
+    @Override
+    public int deleteByDocumentId(String documentId) {
+        return store.removeIf(metadata -> documentId.equals(metadata.get(DOCUMENT_ID)));
+    }
+
+    @Override
+    public int countChunks() {
+        return store.size();
+    }
+
+    @Override
+    public List<ChunkPreview> findChunks(String afterId, int skip, int limit) {
+        return store.page(afterId, skip, limit).stream()
+                .map(entry -> new ChunkPreview(
+                        entry.id(),
+                        Objects.toString(entry.metadata().get(SOURCE), null),
+                        entry.content().length() > PREVIEW_CONTENT_CHARS
+                                ? entry.content().substring(0, PREVIEW_CONTENT_CHARS)
+                                : entry.content(),
+                        embeddingPreview(store.embeddingPrefix(entry.node(), PREVIEW_DIMENSIONS),
+                                store.dimensions())))
+                .toList();
+    }
+
+    /**
+     * Formats like the pgvector preview: {@code [a, b, c, d, e, ...]}.
+     */
+    static String embeddingPreview(float[] prefix, int dimensions) {
+        StringBuilder preview = new StringBuilder("[");
+        for (int i = 0; i < prefix.length; i++) {
+            if (i > 0) {
+                preview.append(", ");
+            }
+            preview.append(prefix[i]);
+        }
+        if (dimensions > prefix.length) {
+            preview.append(", ...");
+        }
+        return preview.append(']').toString();
+    }
+}
@@ -0,0 +1,432 @@
+package com.ragapp.ragapp;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) over the unit
+ * vectors in a {@link VectorStorage}, ranked by dot product, which equals
+ * cosine similarity for unit vectors. Node {@code n} is the vector in slot
+ * {@code n}.
+ *
+ * <p>Deleted nodes stay in the graph as tombstones: they still route searches
+ * but are never returned.
+ *
+ * <p>Not synchronized: {@link #search} may run concurrently with other
+ * searches, but not with {@link #insert} or {@link #markDeleted}.
+ */
+final class HnswGraph {
+
+    private static final int MAX_LEVEL = 16;
+
+    private final VectorStorage vectors;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+
+    /**
+     * {@code links[node][level]} holds the neighbour count at index 0 followed
+     * by the neighbour ids.
+     */
+    private int[][][] links = new int[64][][];
+    private final BitSet deleted = new BitSet();
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * A search result: node id and its similarity to the query.
+     */
+    record Match(int node, float similarity) {
+    }
+
+    HnswGraph(VectorStorage vectors, int m, int efConstruction, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.vectors = vectors;
+        this.m = m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int liveSize() {
+        return size - deleted.cardinality();
+    }
+
+    boolean isDeleted(int node) {
+        return deleted.get(node);
+    }
+
+    void markDeleted(int node) {
+        deleted.set(node);
+    }
+
+    /**
+     * Links the vector stored in slot {@link #size()} into the graph and
+     * returns its node id.
+     */
+    int insert() {
+        int node = size;
+        float[] vector = vectors.get(node);
+        int level = randomLevel();
+        if (node == links.length) {
+            links = Arrays.copyOf(links, links.length * 2);
+        }
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l) + 1];
+        }
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int nearest = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            nearest = greedyClosest(vector, nearest, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = sortedBestFirst(searchLayer(vector, nearest, efConstruction, l, false));
+            int[] selected = selectNeighbours(candidates, maxConnections(l));
+            int[] nodeLinks = links[node][l];
+            nodeLinks[0] = selected.length;
+            System.arraycopy(selected, 0, nodeLinks, 1, selected.length);
+            for (int neighbour : selected) {
+                connect(neighbour, node, l);
+            }
+            nearest = Keys.node(candidates[0]);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * Returns up to {@code k} live nodes most similar to the unit vector
+     * {@code query}, best first.
+     *
+     * @param ef size of the dynamic candidate list; larger values trade speed
+     *           for recall
+     */
+    List<Match> search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        int nearest = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            nearest = greedyClosest(query, nearest, l);
+        }
+        LongHeap results = searchLayer(query, nearest, Math.max(ef, k), 0, true);
+        while (results.size() > k) {
+            results.pop();
+        }
+        long[] best = sortedBestFirst(results);
+        List<Match> matches = new ArrayList<>(best.length);
+        for (long key : best) {
+            matches.add(new Match(Keys.node(key), Keys.similarity(key)));
+        }
+        return matches;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int node = 0; node < size; node++) {
+            int[][] nodeLinks = links[node];
+            out.writeByte(nodeLinks.length - 1);
+            for (int[] levelLinks : nodeLinks) {
+                out.writeShort(levelLinks[0]);
+                for (int i = 1; i <= levelLinks[0]; i++) {
+                    out.writeInt(levelLinks[i]);
+                }
+            }
+        }
+        long[] deletedWords = deleted.toLongArray();
+        out.writeInt(deletedWords.length);
+        for (long word : deletedWords) {
+            out.writeLong(word);
+        }
+    }
+
+    static HnswGraph read(DataInput in, VectorStorage vectors, long seed) throws IOException {
+        HnswGraph graph = new HnswGraph(vectors, in.readInt(), in.readInt(), seed);
+        int size = in.readInt();
+        graph.entryPoint = in.readInt();
+        graph.maxLevel = in.readInt();
+        graph.links = new int[Math.max(64, Integer.highestOneBit(Math.max(size, 1)) * 2)][][];
+        for (int node = 0; node < size; node++) {
+            int level = in.readUnsignedByte();
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                int count = in.readUnsignedShort();
+                int[] levelLinks = new int[graph.maxConnections(l) + 1];
+                levelLinks[0] = count;
+                for (int i = 1; i <= count; i++) {
+                    levelLinks[i] = in.readInt();
+                }
+                nodeLinks[l] = levelLinks;
+            }
+            graph.links[node] = nodeLinks;
+        }
+        graph.size = size;
+        long[] deletedWords = new long[in.readInt()];
+        for (int i = 0; i < deletedWords.length; i++) {
+            deletedWords[i] = in.readLong();
+        }
+        graph.deleted.or(BitSet.valueOf(deletedWords));
+        return graph;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - random.nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(uniform) * levelMultiplier));
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int best = start;
+        float bestSimilarity = vectors.dot(start, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[best][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float similarity = vectors.dot(neighbours[i], query);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best-first beam search on one layer. Returns the {@code ef} best nodes
+     * found as a min-heap (worst on top); tombstones are traversed but only
+     * returned when {@code skipDeleted} is false.
+     */
+    private LongHeap searchLayer(float[] query, int start, int ef, int level, boolean skipDeleted) {
+        BitSet visited = new BitSet(size);
+        LongHeap candidates = new LongHeap(true, ef * 2);
+        LongHeap results = new LongHeap(false, ef + 1);
+
+        long startKey = Keys.of(vectors.dot(start, query), start);
+        visited.set(start);
+        candidates.push(startKey);
+        if (!skipDeleted || !deleted.get(start)) {
+            results.push(startKey);
+        }
+
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.pop();
+            if (results.size() >= ef && Keys.similarity(candidate) < Keys.similarity(results.peek())) {
+                break;
+            }
+            int[] neighbours = links[Keys.node(candidate)][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float similarity = vectors.dot(neighbour, query);
+                if (results.size() < ef || similarity > Keys.similarity(results.peek())) {
+                    long key = Keys.of(similarity, neighbour);
+                    candidates.push(key);
+                    if (!skipDeleted || !deleted.get(neighbour)) {
+                        results.push(key);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept only if it is closer
+     * to the base node than to every neighbour already kept, which spreads
+     * links across clusters instead of spending them on one.
+     *
+     * @param candidates keys relative to the base node, best first
+     */
+    private int[] selectNeighbours(long[] candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.length)];
+        int count = 0;
+        for (long candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            int node = Keys.node(candidate);
+            float similarityToBase = Keys.similarity(candidate);
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (vectors.dot(node, selected[i]) > similarityToBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = node;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Adds a back link from {@code node} to {@code neighbour}, re-selecting
+     * {@code node}'s links when it is already full.
+     */
+    private void connect(int node, int neighbour, int level) {
+        int[] nodeLinks = links[node][level];
+        int count = nodeLinks[0];
+        if (count < nodeLinks.length - 1) {
+            nodeLinks[count + 1] = neighbour;
+            nodeLinks[0] = count + 1;
+            return;
+        }
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = Keys.of(vectors.dot(node, nodeLinks[i + 1]), nodeLinks[i + 1]);
+        }
+        candidates[count] = Keys.of(vectors.dot(node, neighbour), neighbour);
+        Arrays.sort(candidates);
+        reverse(candidates);
+        int[] selected = selectNeighbours(candidates, nodeLinks.length - 1);
+        nodeLinks[0] = selected.length;
+        System.arraycopy(selected, 0, nodeLinks, 1, selected.length);
+    }
+
+    private static long[] sortedBestFirst(LongHeap heap) {
+        long[] keys = new long[heap.size()];
+        for (int i = keys.length - 1; i >= 0; i--) {
+            keys[i] = heap.pop();
+        }
+        return keys;
+    }
+
+    private static void reverse(long[] keys) {
+        for (int i = 0, j = keys.length - 1; i < j; i++, j--) {
+            long tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+    }
+
+    /**
+     * Packs a similarity and a node id into one {@code long} whose natural
+     * order is the similarity order, so heaps need no boxing or comparators.
+     */
+    private static final class Keys {
+
+        static long of(float similarity, int node) {
+            int bits = Float.floatToIntBits(similarity);
+            int sortable = bits ^ ((bits >> 31) & 0x7fffffff);
+            return ((long) sortable << 32) | (node & 0xffffffffL);
+        }
+
+        static float similarity(long key) {
+            int sortable = (int) (key >> 32);
+            return Float.intBitsToFloat(sortable ^ ((sortable >> 31) & 0x7fffffff));
+        }
+
+        static int node(long key) {
+            return (int) key;
+        }
+    }
+
+    /**
+     * Binary heap of keys; a max-heap pops the most similar node first.
+     */
+    private static final class LongHeap {
+
+        private final boolean max;
+        private long[] heap;
+        private int size;
+
+        LongHeap(boolean max, int capacity) {
+            this.max = max;
+            this.heap = new long[Math.max(capacity, 4)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        void push(long key) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(key, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = key;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+
+        private boolean before(long a, long b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Lifecycle of the pgvector HNSW index searched by the chat pipeline: the
+ * full-precision index, or the half-precision one with
+ * {@code rag.vectorstore.pgvector.precision=half}.
+ *
+ * <p>Every inserted chunk is linked into the graph on the spot, which makes
+ * bulk loads slow. For a large import, {@link #dropForBulkLoad} removes the
+ * index (searches scan the table meanwhile), and {@link #rebuild} builds it
+ * again in one pass afterwards, with the given {@code m} and
+ * {@code ef_construction} and parallel maintenance workers. Building once
+ * over all rows is much faster than the same number of incremental inserts.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.vectorstore.type", havingValue = "pgvector", matchIfMissing = true)
+public class HnswIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswIndexManager.class);
+
+    private static final Pattern MEMORY_SIZE = Pattern.compile("\\d+\\s*(kB|MB|GB)");
+
+    public enum State {
+        IDLE,
+        BUILDING,
+        FAILED
+    }
+
+    /**
+     * Build parameters. {@code maintenanceWorkMem} should hold the whole graph,
+     * otherwise the build slows down sharply once it spills.
+     *
+     * @param concurrently build without blocking writes; slower, and needs
+     *                     twice the disk space while the old index exists
+     */
+    public record BuildOptions(int m, int efConstruction, int maintenanceWorkers, String maintenanceWorkMem,
+            boolean concurrently) {
+    }
+
+    /**
+     * @param bulkLoad whether the index was dropped for a bulk load and not
+     *                 rebuilt yet
+     */
+    public record IndexStatus(String name, boolean exists, String definition, long bytes, boolean bulkLoad,
+            State state, String error) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BuildOptions defaults;
+    private final String indexName;
+    private final String column;
+    private final String operatorClass;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private volatile boolean bulkLoad;
+    private volatile State state = State.IDLE;
+    private volatile String error;
+
+    public HnswIndexManager(JdbcTemplate jdbcTemplate,
+            @Value("${rag.vectorstore.pgvector.precision:full}") String precision,
+            @Value("${rag.vectorstore.pgvector.index.m:16}") int m,
+            @Value("${rag.vectorstore.pgvector.index.ef-construction:64}") int efConstruction,
+            @Value("${rag.vectorstore.pgvector.index.maintenance-workers:2}") int maintenanceWorkers,
+            @Value("${rag.vectorstore.pgvector.index.maintenance-work-mem:1GB}") String maintenanceWorkMem) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaults = new BuildOptions(m, efConstruction, maintenanceWorkers, maintenanceWorkMem, false);
+        boolean half = "half".equals(precision.trim().toLowerCase(Locale.ROOT));
+        this.indexName = half ? HalfPrecisionMigration.HALF_INDEX : HalfPrecisionMigration.FULL_INDEX;
+        this.column = half ? "embedding_half" : "embedding";
+        this.operatorClass = half ? "halfvec_cosine_ops" : "vector_cosine_ops";
+    }
+
+    /**
+     * The configured build parameters, for filling in what a caller left out.
+     */
+    public BuildOptions defaults() {
+        return defaults;
+    }
+
+    public IndexStatus status() {
+        List<String> definition = jdbcTemplate.queryForList(
+                "SELECT indexdef FROM pg_indexes WHERE tablename = 'vector_store' AND indexname = ?",
+                String.class, indexName);
+        Long bytes = jdbcTemplate.queryForObject(
+                "SELECT coalesce(pg_relation_size(to_regclass(?)), 0)", Long.class, indexName);
+        return new IndexStatus(indexName, !definition.isEmpty(), definition.isEmpty() ? null : definition.get(0),
+                bytes == null ? 0 : bytes, bulkLoad, state, error);
+    }
+
+    /**
+     * Drops the index ahead of a bulk load. Until {@link #rebuild}, searches
+     * scan the whole table: exact, but slow on a large corpus.
+     */
+    public IndexStatus dropForBulkLoad() {
+        if (building.get()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Index build in progress");
+        }
+        jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+        bulkLoad = true;
+        log.warn("Dropped {} for a bulk load; searches scan vector_store until it is rebuilt", indexName);
+        return status();
+    }
+
+    /**
+     * Builds the index again in the background, replacing the current one if
+     * it exists.
+     *
+     * @throws ResponseStatusException 409 if a build is already running, 400
+     *                                 for an invalid memory size
+     */
+    public IndexStatus rebuild(BuildOptions options) {
+        if (!MEMORY_SIZE.matcher(options.maintenanceWorkMem()).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "maintenanceWorkMem must look like 512MB or 2GB");
+        }
+        if (!building.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Index build in progress");
+        }
+        state = State.BUILDING;
+        error = null;
+        Thread.ofPlatform().name("hnsw-index-build").daemon().start(() -> {
+            try {
+                build(options);
+                bulkLoad = false;
+                state = State.IDLE;
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+                state = State.FAILED;
+                log.error("Building {} failed", indexName, e);
+            } finally {
+                building.set(false);
+            }
+        });
+        return status();
+    }
+
+    private void build(BuildOptions options) {
+        long start = System.nanoTime();
+        String target = options.concurrently() ? indexName + "_rebuild" : indexName;
+        String create = "CREATE INDEX %s %s ON vector_store USING hnsw (%s %s) WITH (m = %d, ef_construction = %d)"
+                .formatted(options.concurrently() ? "CONCURRENTLY" : "", target, column, operatorClass,
+                        options.m(), options.efConstruction());
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                // Session settings on a pooled connection: reset them whatever happens
+                try {
+                    statement.execute("SET max_parallel_maintenance_workers = " + options.maintenanceWorkers());
+                    statement.execute("SET maintenance_work_mem = '" + options.maintenanceWorkMem() + "'");
+                    if (options.concurrently()) {
+                        statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + target);
+                        statement.execute(create);
+                        statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+                        statement.execute("ALTER INDEX " + target + " RENAME TO " + indexName);
+                    } else {
+                        statement.execute("DROP INDEX IF EXISTS " + indexName);
+                        statement.execute(create);
+                    }
+                } finally {
+                    statement.execute("RESET max_parallel_maintenance_workers");
+                    statement.execute("RESET maintenance_work_mem");
+                }
+            }
+            return null;
+        });
+        log.info("Built {} (m={}, ef_construction={}, {} workers) in {} ms", indexName, options.m(),
+                options.efConstruction(), options.maintenanceWorkers(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,529 @@
+package com.ragapp.ragapp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * {@link VectorStore} that keeps an HNSW graph in-process, for deployments
+ * small enough to run without PostgreSQL. Selected with
+ * {@code rag.vectorstore.type=hnsw}.
+ *
+ * <p>Embeddings are stored as unit-length floats off the Java heap, in a
+ * memory-mapped {@code vectors.f32} when a directory is configured. The graph,
+ * ids, contents and metadata are snapshotted to {@code index.bin} in the same
+ * directory after changes (at most once per snapshot interval) and on
+ * shutdown, and loaded again on startup. Vector slots are append-only, so a
+ * snapshot stays valid even if later vectors were written after it.
+ *
+ * <p>Searches run concurrently under a read lock; adds and deletes take the
+ * write lock. Deleted chunks remain as tombstones in the graph, as in other
+ * HNSW implementations, until the store is rebuilt by re-ingesting.
+ * Metadata filter expressions are evaluated in memory on the search results,
+ * see {@link #similaritySearch}.
+ */
+public class HnswVectorStore implements VectorStore, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswVectorStore.class);
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final String VECTOR_FILE = "vectors.f32";
+    private static final String INDEX_FILE = "index.bin";
+    private static final long SEED = 42;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * Index parameters.
+     *
+     * @param directory        where vectors and snapshots are kept, or
+     *                         {@code null} to keep everything in memory only
+     * @param m                links per node on the upper layers (twice as
+     *                         many on the bottom layer)
+     * @param efConstruction   candidate list size while inserting
+     * @param efSearch         candidate list size while searching (raised to
+     *                         top-k when smaller)
+     * @param snapshotInterval delay between snapshots of a changed index
+     */
+    public record Options(Path directory, int m, int efConstruction, int efSearch, Duration snapshotInterval) {
+    }
+
+    /**
+     * A live chunk as seen by {@link HnswChunkRepository}.
+     */
+    record Entry(int node, String id, String content, Map<String, Object> metadata) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final Options options;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService snapshotScheduler;
+
+    // Guarded by lock; node n's data is at index n, null once deleted
+    private VectorStorage vectors;
+    private HnswGraph graph;
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> contents = new ArrayList<>();
+    private final List<Map<String, Object>> metadata = new ArrayList<>();
+    /** Live nodes by id, ordered like the uuid column in PostgreSQL for keyset paging. */
+    private final TreeMap<String, Integer> nodesById = new TreeMap<>();
+    private volatile boolean dirty;
+
+    public HnswVectorStore(EmbeddingModel embeddingModel, Options options) {
+        this.embeddingModel = embeddingModel;
+        this.options = options;
+        if (options.directory() != null) {
+            load();
+            this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("hnsw-snapshot").daemon().factory());
+            long interval = Math.max(1, options.snapshotInterval().toMillis());
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfDirty, interval, interval,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshotScheduler = null;
+        }
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        // Embed outside the lock; this is the slow part
+        add(documents, embeddingModel.embed(documents.stream().map(Document::getContent).toList()));
+    }
+
+    /**
+     * Adds documents with embeddings computed by the caller, one per document.
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException(
+                    documents.size() + " documents but " + embeddings.size() + " embeddings");
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ensureStorage(embeddings.get(0).length);
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                // Same id again replaces the chunk, like the upsert in pgvector
+                Integer previous = nodesById.remove(document.getId());
+                if (previous != null) {
+                    tombstone(previous);
+                }
+                int node = graph.size();
+                vectors.set(node, normalize(embeddings.get(i)));
+                graph.insert();
+                ids.add(document.getId());
+                contents.add(document.getContent());
+                metadata.add(new HashMap<>(document.getMetadata()));
+                nodesById.put(document.getId(), node);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        return Optional.of(remove(idList) == idList.size());
+    }
+
+    /**
+     * Nearest chunks to the query. A filter expression is applied to the
+     * candidates the graph returns; the candidate list is doubled until
+     * {@code topK} of them match or the whole graph has been searched, so
+     * selective filters cost more than unfiltered searches.
+     *
+     * @throws IllegalArgumentException for a filter operator that cannot be
+     *                                  evaluated
+     */
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        Predicate<Map<String, Object>> filter = request.hasFilterExpression()
+                ? MetadataFilter.of(request.getFilterExpression())
+                : null;
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+
+        lock.readLock().lock();
+        try {
+            if (graph == null) {
+                return List.of();
+            }
+            int ef = Math.max(options.efSearch(), request.getTopK());
+            while (true) {
+                // Unfiltered, the best topK are enough; filtered, every candidate may be needed
+                int k = filter == null ? request.getTopK() : ef;
+                List<Document> documents = new ArrayList<>();
+                boolean belowThreshold = false;
+                for (HnswGraph.Match match : graph.search(query, k, ef)) {
+                    if (match.similarity() < request.getSimilarityThreshold()) {
+                        belowThreshold = true;
+                        break;
+                    }
+                    if (filter != null && !filter.test(metadata.get(match.node()))) {
+                        continue;
+                    }
+                    documents.add(document(match));
+                    if (documents.size() == request.getTopK()) {
+                        break;
+                    }
+                }
+                if (filter == null || belowThreshold || documents.size() == request.getTopK()
+                        || ef >= graph.size()) {
+                    return documents;
+                }
+                ef = (int) Math.min((long) ef * 2, graph.size());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Document document(HnswGraph.Match match) {
+        Map<String, Object> documentMetadata = new HashMap<>(metadata.get(match.node()));
+        documentMetadata.put("distance", 1 - match.similarity());
+        Document document = new Document(ids.get(match.node()), contents.get(match.node()), documentMetadata);
+        // Unit length; returned so callers can compare results without re-embedding
+        document.setEmbedding(vectors.get(match.node()));
+        return document;
+    }
+
+    /**
+     * Number of live chunks.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the index now, if it has a directory.
+     */
+    public synchronized void snapshot() {
+        if (options.directory() == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (graph == null) {
+                return;
+            }
+            writeSnapshot();
+            dirty = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write HNSW snapshot to " + options.directory(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        lock.writeLock().lock();
+        try {
+            if (dirty && graph != null) {
+                writeSnapshot();
+                dirty = false;
+            }
+            if (vectors != null) {
+                vectors.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Live chunks whose metadata matches, in id order.
+     */
+    List<Entry> entries(Predicate<Map<String, Object>> filter) {
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            for (int node : nodesById.values()) {
+                if (filter.test(metadata.get(node))) {
+                    entries.add(entry(node));
+                }
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A page of live chunks in id order, starting after {@code afterId}.
+     */
+    List<Entry> page(String afterId, int skip, int limit) {
+        lock.readLock().lock();
+        try {
+            Collection<Integer> nodes = afterId == null
+                    ? nodesById.values()
+                    : nodesById.tailMap(afterId, false).values();
+            return nodes.stream().skip(skip).limit(limit).map(this::entry).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first components of a stored (unit-length) embedding.
+     */
+    float[] embeddingPrefix(int node, int length) {
+        lock.readLock().lock();
+        try {
+            return vectors.prefix(node, length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int dimensions() {
+        lock.readLock().lock();
+        try {
+            return vectors == null ? 0 : vectors.dimensions();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the given chunks.
+     *
+     * @return the number of chunks removed
+     */
+    int remove(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (String id : idsToRemove) {
+                Integer node = nodesById.remove(id);
+                if (node != null) {
+                    tombstone(node);
+                    removed++;
+                }
+            }
+            dirty |= removed > 0;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes every chunk whose metadata matches.
+     *
+     * @return the number of chunks removed
+     */
+    int removeIf(Predicate<Map<String, Object>> filter) {
+        lock.writeLock().lock();
+        try {
+            List<String> matching = new ArrayList<>();
+            nodesById.forEach((id, node) -> {
+                if (filter.test(metadata.get(node))) {
+                    matching.add(id);
+                }
+            });
+            return remove(matching);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges {@code values} into the metadata of the given chunks.
+     */
+    void updateMetadata(Collection<String> idsToUpdate, Map<String, Object> values) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToUpdate) {
+                Integer node = nodesById.get(id);
+                if (node != null) {
+                    metadata.get(node).putAll(values);
+                    dirty = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Entry entry(int node) {
+        return new Entry(node, ids.get(node), contents.get(node), new HashMap<>(metadata.get(node)));
+    }
+
+    private void tombstone(int node) {
+        graph.markDeleted(node);
+        contents.set(node, null);
+        metadata.set(node, null);
+    }
+
+    private void ensureStorage(int dimensions) {
+        if (vectors != null) {
+            if (vectors.dimensions() != dimensions) {
+                throw new IllegalArgumentException("Embedding has " + dimensions
+                        + " dimensions but the HNSW store holds " + vectors.dimensions());
+            }
+            return;
+        }
+        try {
+            if (options.directory() != null) {
+                Files.createDirectories(options.directory());
+                // A leftover vector file without a snapshot holds nothing reachable
+                Files.deleteIfExists(options.directory().resolve(VECTOR_FILE));
+                vectors = VectorStorage.mapped(options.directory().resolve(VECTOR_FILE), dimensions);
+            } else {
+                vectors = VectorStorage.inMemory(dimensions);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create HNSW vector file in " + options.directory(), e);
+        }
+        graph = new HnswGraph(vectors, options.m(), options.efConstruction(), SEED);
+    }
+
+    private void snapshotIfDirty() {
+        try {
+            if (dirty) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.warn("HNSW snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forces the vectors to disk, then writes the index to a temporary file and
+     * moves it over the previous snapshot, so a crash never leaves a partial
+     * snapshot behind.
+     */
+    private void writeSnapshot() throws IOException {
+        long start = System.nanoTime();
+        vectors.force();
+        Path index = options.directory().resolve(INDEX_FILE);
+        Path temporary = options.directory().resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(vectors.dimensions());
+            graph.write(out);
+            for (int node = 0; node < graph.size(); node++) {
+                boolean live = !graph.isDeleted(node);
+                writeString(out, ids.get(node));
+                writeString(out, live ? contents.get(node) : null);
+                writeString(out, live ? JSON.writeValueAsString(metadata.get(node)) : null);
+            }
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Wrote HNSW snapshot of {} chunk(s) in {} ms", nodesById.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void load() {
+        Path index = options.directory().resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not an HNSW snapshot or unsupported version: " + index);
+            }
+            int dimensions = in.readInt();
+            vectors = VectorStorage.mapped(options.directory().resolve(VECTOR_FILE), dimensions);
+            graph = HnswGraph.read(in, vectors, SEED);
+            for (int node = 0; node < graph.size(); node++) {
+                String id = readString(in);
+                String content = readString(in);
+                String metadataJson = readString(in);
+                ids.add(id);
+                contents.add(content);
+                metadata.add(metadataJson != null ? JSON.readValue(metadataJson, METADATA_TYPE) : null);
+                if (!graph.isDeleted(node)) {
+                    nodesById.put(id, node);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load HNSW snapshot " + index, e);
+        }
+        log.info("Loaded HNSW index with {} chunk(s) from {} in {} ms", nodesById.size(), index,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] unit = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < unit.length; i++) {
+                unit[i] *= scale;
+            }
+        }
+        return unit;
+    }
+}
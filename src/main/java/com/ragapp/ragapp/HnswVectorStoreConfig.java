@@ -0,0 +1,43 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Replaces the pgvector store with the in-process {@link HnswVectorStore} when
+ * {@code rag.vectorstore.type=hnsw}. To run without PostgreSQL at all, also
+ * activate the {@code hnsw} profile, which excludes the DataSource and pgvector
+ * auto-configuration.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rag.vectorstore.type", havingValue = "hnsw")
+public class HnswVectorStoreConfig {
+
+    /**
+     * Primary, so it wins over a pgvector store that may still be
+     * auto-configured when PostgreSQL is on the classpath and reachable.
+     */
+    @Bean
+    @Primary
+    public HnswVectorStore hnswVectorStore(EmbeddingModel embeddingModel,
+            @Value("${rag.vectorstore.hnsw.directory:data/hnsw}") String directory,
+            @Value("${rag.vectorstore.hnsw.m:16}") int m,
+            @Value("${rag.vectorstore.hnsw.ef-construction:100}") int efConstruction,
+            @Value("${rag.vectorstore.hnsw.ef-search:64}") int efSearch,
+            @Value("${rag.vectorstore.hnsw.snapshot-interval:30s}") Duration snapshotInterval) {
+        return new HnswVectorStore(embeddingModel, new HnswVectorStore.Options(
+                directory.isBlank() ? null : Path.of(directory), m, efConstruction, efSearch, snapshotInterval));
+    }
+
+    @Bean
+    public ChunkRepository hnswChunkRepository(HnswVectorStore hnswVectorStore) {
+        return new HnswChunkRepository(hnswVectorStore);
+    }
+}
@@ -0,0 +1,103 @@
+package com.ragapp.ragapp;
+
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Hybrid lexical and vector retrieval on the pgvector table in one SQL round
+ * trip. The nearest chunks by cosine distance (HNSW index) and the best
+ * full-text matches ({@code tsvector} GIN index) are fused with reciprocal
+ * rank fusion: each chunk scores {@code 1 / (k + rank)} per list it appears in.
+ * Exact terms such as policy numbers or product codes then surface even when
+ * their embedding is not among the nearest.
+ *
+ * <p>The {@code content_tsv} column is maintained by {@link FullTextSearchIndex}.
+ * Until it exists, or if it cannot be created, retrieval falls back to vector
+ * search.
+ */
+public class HybridChunkRetriever implements ChunkRetriever {
+
+    /**
+     * Parameters: query embedding, vector candidates, max cosine distance,
+     * query text, text candidates, rrf k (twice), top k.
+     */
+    private static final String HYBRID_QUERY = """
+            WITH nearest AS (
+                SELECT id, embedding <=> ? AS distance
+                FROM vector_store
+                ORDER BY distance
+                LIMIT ?
+            ),
+            vector_hits AS (
+                SELECT id, row_number() OVER (ORDER BY distance) AS rank
+                FROM nearest
+                WHERE distance < ?
+            ),
+            text_hits AS (
+                SELECT id, row_number() OVER (ORDER BY ts_rank_cd(content_tsv, query) DESC) AS rank
+                FROM vector_store, websearch_to_tsquery('english', ?) AS query
+                WHERE content_tsv @@ query
+                ORDER BY ts_rank_cd(content_tsv, query) DESC
+                LIMIT ?
+            ),
+            fused AS (
+                SELECT coalesce(v.id, t.id) AS id,
+                       coalesce(1.0 / (? + v.rank), 0) + coalesce(1.0 / (? + t.rank), 0) AS score
+                FROM vector_hits v
+                FULL OUTER JOIN text_hits t ON t.id = v.id
+            )
+            SELECT s.id, s.content, s.metadata::text AS metadata, s.embedding::text AS embedding, f.score
+            FROM fused f
+            JOIN vector_store s ON s.id = f.id
+            ORDER BY f.score DESC
+            LIMIT ?
+            """;
+
+    private static final ChunkRowMapper DOCUMENT_MAPPER = new ChunkRowMapper("score", "rrf_score");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final FullTextSearchIndex textIndex;
+    private final ChunkRetriever fallback;
+    private final int candidates;
+    private final int rrfK;
+
+    /**
+     * @param fallback   used while the full-text column is not available
+     * @param candidates chunks taken from each of the two ranked lists
+     * @param rrfK       rank fusion constant; larger values flatten the
+     *                   advantage of top ranks
+     */
+    public HybridChunkRetriever(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel,
+            FullTextSearchIndex textIndex, ChunkRetriever fallback, int candidates, int rrfK) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddingModel = embeddingModel;
+        this.textIndex = textIndex;
+        this.fallback = fallback;
+        this.candidates = candidates;
+        this.rrfK = rrfK;
+    }
+
+    @Override
+    public List<Document> retrieve(SearchRequest request) {
+        if (!textIndex.isAvailable()) {
+            return fallback.retrieve(request);
+        }
+        PGvector embedding = new PGvector(embeddingModel.embed(request.getQuery()));
+        int perList = vectorCandidates(request);
+        return jdbcTemplate.query(HYBRID_QUERY, DOCUMENT_MAPPER,
+                embedding, perList, 1 - request.getSimilarityThreshold(),
+                request.getQuery(), perList,
+                rrfK, rrfK, request.getTopK());
+    }
+
+    @Override
+    public int vectorCandidates(SearchRequest request) {
+        return textIndex.isAvailable() ? Math.max(candidates, request.getTopK()) : fallback.vectorCandidates(request);
+    }
+}
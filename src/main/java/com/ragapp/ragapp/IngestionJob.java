@@ -0,0 +1,125 @@
+package com.ragapp.ragapp;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mutable state of one background ingestion run, tracked by
+ * {@link IngestionJobService}. Exposed to clients as an immutable
+ * {@link IngestionJobStatus} snapshot.
+ */
+class IngestionJob implements IngestionProgress {
+
+    private final String id;
+    private final String fileName;
+    private final Path file;
+    private final Instant submittedAt = Instant.now();
+    private final CompletableFuture<IngestionJobStatus> completion = new CompletableFuture<>();
+
+    private final AtomicInteger pagesParsed = new AtomicInteger();
+    private final AtomicInteger chunksTotal = new AtomicInteger();
+    private final AtomicInteger chunksEmbedded = new AtomicInteger();
+    private final AtomicInteger chunksReused = new AtomicInteger();
+    private final AtomicInteger chunksRemoved = new AtomicInteger();
+
+    private volatile IngestionJobStatus.State state = IngestionJobStatus.State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+    private volatile Future<?> future;
+
+    IngestionJob(String id, String fileName, Path file) {
+        this.id = id;
+        this.fileName = fileName;
+        this.file = file;
+    }
+
+    String id() {
+        return id;
+    }
+
+    String fileName() {
+        return fileName;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    CompletableFuture<IngestionJobStatus> completion() {
+        return completion;
+    }
+
+    void attach(Future<?> future) {
+        this.future = future;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        state = IngestionJobStatus.State.RUNNING;
+    }
+
+    void finish(IngestionJobStatus.State finalState, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = finalState;
+        completion.complete(status());
+    }
+
+    /**
+     * Requests cancellation. A queued job is removed from the pool right away;
+     * a running job stops after its in-flight embedding batches.
+     */
+    void cancel() {
+        cancelRequested = true;
+        Future<?> current = future;
+        if (state == IngestionJobStatus.State.QUEUED && current != null && current.cancel(false)) {
+            finish(IngestionJobStatus.State.CANCELLED, null);
+        }
+    }
+
+    @Override
+    public void onParsed(int pages) {
+        pagesParsed.addAndGet(pages);
+    }
+
+    @Override
+    public void onChunked(int chunks) {
+        chunksTotal.addAndGet(chunks);
+    }
+
+    @Override
+    public void onEmbedded(int chunks) {
+        chunksEmbedded.addAndGet(chunks);
+    }
+
+    @Override
+    public void onReused(int chunks) {
+        chunksReused.addAndGet(chunks);
+    }
+
+    @Override
+    public void onRemoved(int chunks) {
+        chunksRemoved.addAndGet(chunks);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    IngestionJobStatus status() {
+        Instant start = startedAt;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long elapsedMs = start == null ? 0 : Duration.between(start, end).toMillis();
+        int embedded = chunksEmbedded.get();
+        double chunksPerSecond = elapsedMs == 0 ? 0 : embedded * 1000.0 / elapsedMs;
+        return new IngestionJobStatus(id, fileName, state, pagesParsed.get(), chunksTotal.get(), embedded,
+                chunksReused.get(), chunksRemoved.get(), chunksPerSecond, elapsedMs, submittedAt, error);
+    }
+}
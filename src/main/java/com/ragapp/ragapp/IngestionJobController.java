@@ -0,0 +1,45 @@
+package com.ragapp.ragapp;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/ingest/jobs")
+public class IngestionJobController {
+
+    private final IngestionJobService jobService;
+
+    public IngestionJobController(IngestionJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public IngestionJobStatus submit(@RequestParam("file") MultipartFile file) throws IOException {
+        return jobService.submit(file.getInputStream(), file.getOriginalFilename());
+    }
+
+    @GetMapping
+    public List<IngestionJobStatus> list() {
+        return jobService.list();
+    }
+
+    @GetMapping("/{id}")
+    public IngestionJobStatus status(@PathVariable String id) {
+        return jobService.status(id).orElseThrow(() -> notFound(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public IngestionJobStatus cancel(@PathVariable String id) {
+        return jobService.cancel(id).orElseThrow(() -> notFound(id));
+    }
+
+    private static ResponseStatusException notFound(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown ingestion job: " + id);
+    }
+}
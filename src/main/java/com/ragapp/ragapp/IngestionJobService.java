@@ -0,0 +1,151 @@
+package com.ragapp.ragapp;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs ingestions in the background. Uploads are spooled to a temporary file,
+ * so the submitting request can return immediately with a job id; a fixed
+ * pool of workers then parses, chunks and embeds them through
+ * {@link IngestionService}. Finished jobs are kept for status queries until
+ * {@code rag.ingest.job-history} newer jobs have finished.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    private final IngestionService ingestionService;
+    private final ExecutorService workers;
+    private final int jobHistory;
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestionJobService(IngestionService ingestionService,
+            @Value("${rag.ingest.workers:2}") int workers,
+            @Value("${rag.ingest.job-history:100}") int jobHistory) {
+        this.ingestionService = ingestionService;
+        this.workers = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("ingest-worker-", 0).daemon().factory());
+        this.jobHistory = jobHistory;
+    }
+
+    /**
+     * Copies the upload to a temporary file and queues it for ingestion.
+     */
+    public IngestionJobStatus submit(InputStream content, String fileName) throws IOException {
+        Path file = Files.createTempFile("ragapp-ingest-", suffixOf(fileName));
+        try (content) {
+            Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return submit(file, fileName);
+    }
+
+    /**
+     * Queues an already spooled file for ingestion. The job takes ownership of
+     * the file and deletes it when it finishes.
+     */
+    public IngestionJobStatus submit(Path file, String fileName) {
+        pruneFinishedJobs();
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), fileName, file);
+        jobs.put(job.id(), job);
+        job.completion().whenComplete((status, error) -> deleteQuietly(file));
+        job.attach(workers.submit(() -> run(job)));
+        return job.status();
+    }
+
+    public Optional<IngestionJobStatus> status(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(IngestionJob::status);
+    }
+
+    public List<IngestionJobStatus> list() {
+        return jobs.values().stream()
+                .map(IngestionJob::status)
+                .sorted(Comparator.comparing(IngestionJobStatus::submittedAt).reversed())
+                .toList();
+    }
+
+    public Optional<IngestionJobStatus> cancel(String id) {
+        IngestionJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancel();
+        return Optional.of(job.status());
+    }
+
+    /**
+     * Completes when the job has finished, whatever the outcome.
+     */
+    public Optional<CompletableFuture<IngestionJobStatus>> completion(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(IngestionJob::completion);
+    }
+
+    private void run(IngestionJob job) {
+        if (job.isCancelled()) {
+            job.finish(IngestionJobStatus.State.CANCELLED, null);
+            return;
+        }
+        job.started();
+        try {
+            ingestionService.ingest(new FileSystemResource(job.file()), job.fileName(), null, job);
+            job.finish(IngestionJobStatus.State.COMPLETED, null);
+            log.info("Ingestion job {} ({}) completed: {}", job.id(), job.fileName(), job.status());
+        } catch (CancellationException e) {
+            job.finish(IngestionJobStatus.State.CANCELLED, null);
+            log.info("Ingestion job {} ({}) cancelled", job.id(), job.fileName());
+        } catch (Exception e) {
+            job.finish(IngestionJobStatus.State.FAILED, e.getMessage());
+            log.warn("Ingestion job {} ({}) failed", job.id(), job.fileName(), e);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        List<IngestionJobStatus> finished = jobs.values().stream()
+                .map(IngestionJob::status)
+                .filter(IngestionJobStatus::finished)
+                .sorted(Comparator.comparing(IngestionJobStatus::submittedAt).reversed())
+                .toList();
+        finished.stream().skip(jobHistory).forEach(status -> jobs.remove(status.id()));
+    }
+
+    private static String suffixOf(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot) : null;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", file, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
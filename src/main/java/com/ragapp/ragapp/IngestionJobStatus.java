@@ -0,0 +1,23 @@
+package com.ragapp.ragapp;
+
+import java.time.Instant;
+
+/**
+ * Point-in-time view of a background ingestion job.
+ */
+public record IngestionJobStatus(String id, String fileName, State state, int pagesParsed, int chunksTotal,
+        int chunksEmbedded, int chunksReused, int chunksRemoved, double chunksPerSecond, long elapsedMs,
+        Instant submittedAt, String error) {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    public boolean finished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ragapp.ragapp;
+
+/**
+ * Callbacks through which {@link IngestionService} reports progress and checks
+ * for cancellation. Implementations must be thread-safe: embedding batches
+ * complete on several threads at once.
+ */
+public interface IngestionProgress {
+
+    IngestionProgress NONE = new IngestionProgress() {
+    };
+
+    default void onParsed(int pages) {
+    }
+
+    default void onChunked(int chunks) {
+    }
+
+    default void onEmbedded(int chunks) {
+    }
+
+    default void onReused(int chunks) {
+    }
+
+    default void onRemoved(int chunks) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,9 @@
+package com.ragapp.ragapp;
+
+/**
+ * Outcome of ingesting one document: how many chunks were reused unchanged,
+ * how many were newly embedded, how many stale chunks were removed, and how
+ * many chunks per second were embedded and stored (0 if none were).
+ */
+public record IngestionResult(String source, int reused, int embedded, int removed, double chunksPerSecond) {
+}
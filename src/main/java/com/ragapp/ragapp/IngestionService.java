@@ -1,33 +1,433 @@
 package com.ragapp.ragapp;
 
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 @Service
 public class IngestionService {
 
+    private static final Logger log = LoggerFactory.getLogger(IngestionService.class);
+
     private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final ChunkRepository chunkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RagMetrics metrics;
+    private final int batchSize;
+    private final int batchMaxTokens;
+    private final int embeddingRetries;
+    private final Duration retryBackoff;
+    private final TokenCountEstimator tokenCounter = new JTokkitTokenCountEstimator();
+    private final int maxPendingBatches;
+    private final boolean incrementalByDefault;
+    private final ExecutorService embeddingExecutor;
 
-    public IngestionService(VectorStore vectorStore) {
+    public IngestionService(VectorStore vectorStore, EmbeddingModel embeddingModel, ChunkRepository chunkRepository,
+            ApplicationEventPublisher eventPublisher, RagMetrics metrics,
+            @Value("${rag.ingest.batch-size:32}") int batchSize,
+            @Value("${rag.ingest.batch-max-tokens:8192}") int batchMaxTokens,
+            @Value("${rag.ingest.embedding-parallelism:2}") int embeddingParallelism,
+            @Value("${rag.ingest.max-pending-batches:4}") int maxPendingBatches,
+            @Value("${rag.ingest.embedding-retries:2}") int embeddingRetries,
+            @Value("${rag.ingest.retry-backoff:500ms}") Duration retryBackoff,
+            @Value("${rag.ingest.incremental:true}") boolean incrementalByDefault) {
         this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.chunkRepository = chunkRepository;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.batchMaxTokens = batchMaxTokens;
+        this.embeddingRetries = embeddingRetries;
+        this.retryBackoff = retryBackoff;
+        this.maxPendingBatches = Math.max(1, maxPendingBatches);
+        this.incrementalByDefault = incrementalByDefault;
+        // Shared by all ingestions, so this bounds the load on the embedding model globally
+        this.embeddingExecutor = Executors.newFixedThreadPool(embeddingParallelism,
+                Thread.ofPlatform().name("ingest-embed-", 0).daemon().factory());
+    }
+
+    public IngestionResult ingest(Resource resource, String source, Boolean incremental) {
+        return ingest(resource, source, incremental, IngestionProgress.NONE);
     }
 
-    public void ingest(Resource resource) {
-        // 1. Read the PDF
-        TikaDocumentReader documentReader = new TikaDocumentReader(resource);
-        List<Document> documents = documentReader.get();
+    /**
+     * Parses, chunks and embeds the resource, reporting progress as it goes.
+     *
+     * <p>Ingestion streams: text is extracted page by page
+     * ({@link PageTextReader}), split as it arrives ({@link PageChunker}), and
+     * new chunks go straight into embedding batches. At most
+     * {@code rag.ingest.max-pending-batches} batches wait for or are in
+     * embedding; beyond that, parsing pauses. Memory use therefore does not
+     * grow with the size of the document.
+     *
+     * <p>Every chunk is stamped with its source name, the SHA-256 hash of its
+     * own text and the SHA-256 hash of the uploaded file. When the source name
+     * is known, previously stored chunks of the same source are reconciled
+     * against the new ones: in incremental mode ({@code rag.ingest.incremental}
+     * unless overridden per call), chunks whose hash is unchanged are kept and
+     * only new or changed chunks are embedded; otherwise all chunks are
+     * embedded again. Either way, stored chunks that are not part of the new
+     * revision are removed once the new ones are in place.
+     *
+     * <p>Batches hold at most {@code rag.ingest.batch-size} chunks and
+     * {@code rag.ingest.batch-max-tokens} tokens. They are embedded on the
+     * shared embedding pool and written with multi-row inserts as soon as they
+     * are embedded. A failed batch is retried on its own up to
+     * {@code rag.ingest.embedding-retries} times with exponential backoff. If
+     * the run is cancelled or a batch still fails, the chunks already stored by
+     * this run are removed again.
+     *
+     * @param resource    the document; read twice (hash, then text), so a
+     *                    single-use resource is spooled to a temporary file first
+     * @param source      name identifying the document across uploads, usually
+     *                    the file name; {@code null} disables reconciliation
+     * @param incremental whether to reuse unchanged chunks, or {@code null} for
+     *                    the configured default
+     * @throws CancellationException if {@link IngestionProgress#isCancelled()}
+     *                               turned true during the run
+     */
+    public IngestionResult ingest(Resource resource, String source, Boolean incremental,
+            IngestionProgress progress) {
+        if (resource.isOpen()) {
+            return ingestSpooled(resource, source, incremental, progress);
+        }
+        boolean reuseUnchanged = incremental != null ? incremental : incrementalByDefault;
+        StageTimer timer = new StageTimer();
+
+        // 1. Fingerprint the file and look up what is already stored for this source
+        String documentHash = timer.time("hash", () -> sha256(resource));
+        // Name-based, so every revision of the same file keeps its document id
+        String documentId = source != null
+                ? UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8)).toString()
+                : UUID.randomUUID().toString();
+        List<ChunkRepository.StoredChunk> stored = source != null
+                ? chunkRepository.findBySource(source)
+                : List.of();
+        Map<String, Deque<String>> storedIdsByHash = new HashMap<>();
+        for (ChunkRepository.StoredChunk chunk : stored) {
+            storedIdsByHash.computeIfAbsent(chunk.chunkHash(), hash -> new ArrayDeque<>()).add(chunk.id());
+        }
+
+        // 2. Extract, split and fingerprint page by page; reuse unchanged chunks and
+        // embed and store the others in parallel, token-bounded batches
+        List<String> reusedIds = new ArrayList<>();
+        PageChunker chunker = new PageChunker(new TokenTextSplitter());
+        EmbeddingPipeline pipeline = new EmbeddingPipeline(progress);
+        long[] splitNanos = new long[1];
+        Consumer<List<Document>> onChunks = chunks -> {
+            progress.onChunked(chunks.size());
+            for (Document chunk : chunks) {
+                String chunkHash = sha256(List.of(chunk.getContent()));
+                Deque<String> matches = reuseUnchanged ? storedIdsByHash.get(chunkHash) : null;
+                if (matches != null && !matches.isEmpty()) {
+                    reusedIds.add(matches.poll());
+                    progress.onReused(1);
+                    continue;
+                }
+                chunk.getMetadata().put(ChunkRepository.DOCUMENT_ID, documentId);
+                if (source != null) {
+                    chunk.getMetadata().put(ChunkRepository.SOURCE, source);
+                }
+                chunk.getMetadata().put(ChunkRepository.DOCUMENT_HASH, documentHash);
+                chunk.getMetadata().put(ChunkRepository.CHUNK_HASH, chunkHash);
+                pipeline.add(chunk);
+            }
+        };
+        long start = System.nanoTime();
+        try {
+            PageTextReader.read(resource, page -> {
+                if (progress.isCancelled()) {
+                    throw new CancellationException("Ingestion cancelled");
+                }
+                progress.onParsed(1);
+                long splitStart = System.nanoTime();
+                onChunks.accept(chunker.add(page));
+                splitNanos[0] += System.nanoTime() - splitStart;
+            });
+            onChunks.accept(chunker.finish());
+            long parsed = System.nanoTime();
+            pipeline.finish();
+            timer.record("parse", parsed - start - splitNanos[0]);
+            timer.record("split", splitNanos[0]);
+            // Embedding overlaps parsing, so it is timed from the start of the run
+            timer.record("embed", System.nanoTime() - start);
+        } catch (IOException e) {
+            pipeline.rollback();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            pipeline.rollback();
+            throw e;
+        }
+        List<String> staleIds = storedIdsByHash.values().stream().flatMap(Deque::stream).toList();
+
+        // 3. Bring reused chunks up to date and drop the ones that disappeared
+        boolean reusedFromOlderRevision = stored.stream()
+                .anyMatch(chunk -> !documentHash.equals(chunk.documentHash()));
+        if (reusedFromOlderRevision) {
+            chunkRepository.restamp(reusedIds, documentId, documentHash);
+        }
+        if (!staleIds.isEmpty()) {
+            vectorStore.delete(staleIds);
+        }
+        progress.onRemoved(staleIds.size());
+
+        int embedded = pipeline.stored();
+        if (embedded > 0 || !staleIds.isEmpty()) {
+            eventPublisher.publishEvent(new CorpusChangedEvent("ingest"));
+        }
+        long embedNanos = timer.stagesNanos().get("embed");
+        double chunksPerSecond = embedded > 0 && embedNanos > 0 ? embedded * 1e9 / embedNanos : 0;
+        IngestionResult result = new IngestionResult(source, reusedIds.size(), embedded, staleIds.size(),
+                chunksPerSecond);
+        log.info("Ingested {}: {} chunks embedded ({} chunks/s), {} reused, {} removed", source,
+                result.embedded(), Math.round(chunksPerSecond), result.reused(), result.removed());
+        timer.finish();
+        metrics.recordIngestion(result, timer);
+        return result;
+    }
+
+    private IngestionResult ingestSpooled(Resource resource, String source, Boolean incremental,
+            IngestionProgress progress) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("ragapp-ingest-", ".tmp");
+            try (InputStream in = resource.getInputStream()) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return ingest(new FileSystemResource(file), source != null ? source : resource.getFilename(),
+                    incremental, progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spool " + resource.getDescription(), e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete temporary file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Embeds and stores the new chunks of one ingestion run in batches on the
+     * shared embedding pool, while the run goes on parsing. Only the parsing
+     * thread calls {@link #add}, {@link #finish} and {@link #rollback}.
+     */
+    private final class EmbeddingPipeline {
+
+        private final IngestionProgress progress;
+        private final ChunkBatcher batcher = new ChunkBatcher(batchSize, batchMaxTokens,
+                text -> tokenCounter.estimate(text));
+        private final Semaphore pendingBatches = new Semaphore(maxPendingBatches);
+        private final List<Future<?>> batches = new ArrayList<>();
+        private final List<String> storedIds = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean abandoned;
+
+        private EmbeddingPipeline(IngestionProgress progress) {
+            this.progress = progress;
+        }
 
-        // 2. Split into chunks
-        TokenTextSplitter textSplitter = new TokenTextSplitter();
-        List<Document> chunks = textSplitter.apply(documents);
+        void add(Document chunk) {
+            List<Document> full = batcher.add(chunk);
+            if (full != null) {
+                submit(full);
+            }
+        }
+
+        /**
+         * Submits the last batch and waits for all of them.
+         */
+        void finish() {
+            List<Document> last = batcher.drain();
+            if (!last.isEmpty()) {
+                submit(last);
+            }
+            try {
+                for (Future<?> batch : batches) {
+                    batch.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Ingestion interrupted");
+            } catch (ExecutionException e) {
+                throw failure(e);
+            }
+            if (progress.isCancelled()) {
+                throw new CancellationException("Ingestion cancelled");
+            }
+        }
+
+        int stored() {
+            return storedIds.size();
+        }
+
+        private void submit(List<Document> batch) {
+            // Stop parsing as soon as a batch has failed for good
+            batches.removeIf(future -> {
+                if (!future.isDone()) {
+                    return false;
+                }
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw failure(e);
+                } catch (InterruptedException e) {
+                    // Cannot happen, the future is done
+                }
+                return true;
+            });
+            try {
+                pendingBatches.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Ingestion interrupted");
+            }
+            try {
+                batches.add(embeddingExecutor.submit(() -> {
+                    try {
+                        if (abandoned || progress.isCancelled()) {
+                            return;
+                        }
+                        List<float[]> embeddings = embedWithRetries(batch, progress);
+                        chunkRepository.insert(batch, embeddings);
+                        batch.forEach(chunk -> storedIds.add(chunk.getId()));
+                        progress.onEmbedded(batch.size());
+                    } finally {
+                        pendingBatches.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                pendingBatches.release();
+                throw e;
+            }
+        }
+
+        private RuntimeException failure(ExecutionException e) {
+            if (e.getCause() instanceof CancellationException cancelled) {
+                return cancelled;
+            }
+            return new IllegalStateException("Embedding failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        /**
+         * Skips batches that have not started, waits for running ones and
+         * removes every chunk this run stored.
+         */
+        void rollback() {
+            abandoned = true;
+            // Wait for in-flight batches so their chunks are included in the cleanup
+            for (Future<?> batch : batches) {
+                try {
+                    batch.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ignored) {
+                    // A failed batch stored nothing
+                }
+            }
+            List<String> ids = List.copyOf(storedIds);
+            if (!ids.isEmpty()) {
+                vectorStore.delete(ids);
+                eventPublisher.publishEvent(new CorpusChangedEvent("ingest-rollback"));
+            }
+        }
+    }
+
+    private List<float[]> embedWithRetries(List<Document> batch, IngestionProgress progress) {
+        List<String> texts = batch.stream().map(Document::getContent).toList();
+        long backoffMillis = retryBackoff.toMillis();
+        for (int attempt = 0;; attempt++) {
+            try {
+                return embeddingModel.embed(texts);
+            } catch (RuntimeException e) {
+                if (attempt >= embeddingRetries || progress.isCancelled()) {
+                    throw e;
+                }
+                log.warn("Embedding a batch of {} chunks failed (attempt {} of {}), retrying: {}",
+                        batch.size(), attempt + 1, embeddingRetries + 1, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Ingestion interrupted");
+                }
+            }
+        }
+    }
+
+    private static String sha256(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = in.read(buffer)) != -1;) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + resource.getDescription(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String sha256(List<String> parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                // Separator, so ["ab", "c"] and ["a", "bc"] hash differently
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 
-        // 3. Save to VectorStore
-        vectorStore.add(chunks);
+    @PreDestroy
+    void shutdown() {
+        embeddingExecutor.shutdownNow();
     }
 }
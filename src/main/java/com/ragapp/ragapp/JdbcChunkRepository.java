@@ -0,0 +1,198 @@
+package com.ragapp.ragapp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Direct JDBC access to the chunk bookkeeping kept in the {@code vector_store}
+ * metadata column of the pgvector store.
+ */
+@Repository
+@ConditionalOnProperty(name = "rag.vectorstore.type", havingValue = "pgvector", matchIfMissing = true)
+public class JdbcChunkRepository implements ChunkRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcChunkRepository.class);
+
+    /**
+     * Previews the first five embedding dimensions in SQL, so the full vector is
+     * never shipped to the JVM. Content is capped for the same reason; the grid
+     * only shows the start of each chunk.
+     */
+    private static final String PREVIEW_COLUMNS = """
+            SELECT id, metadata->>'source' AS source, left(content, 1000) AS content,
+                   coalesce('[' || array_to_string((embedding::real[])[1:5], ', ')
+                            || CASE WHEN vector_dims(embedding) > 5 THEN ', ...' ELSE '' END
+                            || ']', '[]') AS embedding_preview
+            FROM vector_store
+            """;
+
+    private static final RowMapper<ChunkPreview> PREVIEW_MAPPER = (rs, rowNum) -> new ChunkPreview(
+            rs.getString("id"),
+            rs.getString("source"),
+            rs.getString("content"),
+            rs.getString("embedding_preview"));
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int insertRows;
+
+    public JdbcChunkRepository(JdbcTemplate jdbcTemplate,
+            @Value("${rag.ingest.insert-rows:100}") int insertRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertRows = Math.max(1, insertRows);
+    }
+
+    /**
+     * Adds expression indexes on the metadata keys used for lookups and bulk
+     * deletes. Runs once the vector store has created its table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMetadataIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS vector_store_document_id_idx "
+                    + "ON vector_store ((metadata->>'document_id'))");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS vector_store_source_idx "
+                    + "ON vector_store ((metadata->>'source'))");
+        } catch (Exception e) {
+            log.warn("Could not create metadata indexes on vector_store: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public List<StoredDocument> findDocuments() {
+        return jdbcTemplate.query("""
+                SELECT metadata->>'document_id' AS document_id, min(metadata->>'source') AS source, count(*) AS chunks
+                FROM vector_store
+                WHERE metadata->>'document_id' IS NOT NULL
+                GROUP BY metadata->>'document_id'
+                ORDER BY source
+                """,
+                (rs, rowNum) -> new StoredDocument(
+                        rs.getString("document_id"),
+                        rs.getString("source"),
+                        rs.getInt("chunks")));
+    }
+
+    /**
+     * Upserts the chunks with multi-row {@code INSERT ... ON CONFLICT}
+     * statements of up to {@code rag.ingest.insert-rows} rows each, one round
+     * trip per statement instead of one per chunk.
+     */
+    @Override
+    public void insert(List<Document> chunks, List<float[]> embeddings) {
+        if (chunks.size() != embeddings.size()) {
+            throw new IllegalArgumentException(chunks.size() + " chunks but " + embeddings.size() + " embeddings");
+        }
+        for (int from = 0; from < chunks.size(); from += insertRows) {
+            int to = Math.min(from + insertRows, chunks.size());
+            List<Object> args = new ArrayList<>((to - from) * 4);
+            for (int i = from; i < to; i++) {
+                Document chunk = chunks.get(i);
+                args.add(UUID.fromString(chunk.getId()));
+                args.add(chunk.getContent());
+                args.add(toJson(chunk.getMetadata()));
+                args.add(new PGvector(embeddings.get(i)));
+            }
+            jdbcTemplate.update("INSERT INTO vector_store (id, content, metadata, embedding) VALUES "
+                    + String.join(", ", Collections.nCopies(to - from, "(?, ?, ?::json, ?)"))
+                    + " ON CONFLICT (id) DO UPDATE SET content = EXCLUDED.content, "
+                    + "metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding",
+                    args.toArray());
+        }
+    }
+
+    @Override
+    public List<StoredChunk> findBySource(String source) {
+        return jdbcTemplate.query("""
+                SELECT id, metadata->>'chunk_hash' AS chunk_hash, metadata->>'document_hash' AS document_hash
+                FROM vector_store
+                WHERE metadata->>'source' = ?
+                """,
+                (rs, rowNum) -> new StoredChunk(
+                        rs.getString("id"),
+                        rs.getString("chunk_hash"),
+                        rs.getString("document_hash")),
+                source);
+    }
+
+    @Override
+    public void restamp(List<String> ids, String documentId, String documentHash) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(con -> {
+            var statement = con.prepareStatement("""
+                    UPDATE vector_store
+                    SET metadata = (metadata::jsonb || jsonb_build_object('document_id', ?::text, 'document_hash', ?::text))::json
+                    WHERE id = ANY(?)
+                    """);
+            statement.setString(1, documentId);
+            statement.setString(2, documentHash);
+            statement.setArray(3, con.createArrayOf("uuid", ids.stream().map(UUID::fromString).toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Deletes the given chunks in one statement. Ids are bound as a typed
+     * {@code uuid[]}, so the primary-key index is used.
+     */
+    @Override
+    public int deleteByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            var statement = con.prepareStatement("DELETE FROM vector_store WHERE id = ANY(?)");
+            statement.setArray(1, con.createArrayOf("uuid", ids.stream().map(UUID::fromString).toArray()));
+            return statement;
+        });
+    }
+
+    @Override
+    public int deleteByDocumentId(String documentId) {
+        return jdbcTemplate.update("DELETE FROM vector_store WHERE metadata->>'document_id' = ?", documentId);
+    }
+
+    @Override
+    public int countChunks() {
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM vector_store", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<ChunkPreview> findChunks(String afterId, int skip, int limit) {
+        if (afterId == null) {
+            return jdbcTemplate.query(PREVIEW_COLUMNS + "ORDER BY id OFFSET ? LIMIT ?", PREVIEW_MAPPER, skip, limit);
+        }
+        return jdbcTemplate.query(PREVIEW_COLUMNS + "WHERE id > ?::uuid ORDER BY id OFFSET ? LIMIT ?",
+                PREVIEW_MAPPER, afterId, skip, limit);
+    }
+
+    private static String toJson(Map<String, Object> metadata) {
+        try {
+            return JSON.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Chunk metadata is not serializable: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.ragapp.ragapp;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Local, allocation-light classifier based on a small-talk lexicon and a few
+ * surface signals of a question (interrogative openers, question marks,
+ * length, identifiers). Runs in microseconds and reports a low confidence
+ * for short messages it cannot place, so the router can fall back to the LLM.
+ */
+@Component
+public class LexiconQueryClassifier implements QueryClassifier {
+
+    /**
+     * Whole messages that are small talk on their own.
+     */
+    private static final Set<String> SMALL_TALK_PHRASES = Set.of(
+            "hi", "hello", "hey", "hiya", "howdy", "yo", "sup",
+            "hi there", "hello there", "hey there",
+            "good morning", "good afternoon", "good evening", "good night",
+            "how are you", "how are you doing", "how is it going", "hows it going", "how s it going",
+            "whats up", "what s up", "how do you do", "nice to meet you",
+            "thanks", "thank you", "thanks a lot", "thank you so much", "many thanks", "thx", "ty", "cheers",
+            "bye", "goodbye", "good bye", "see you", "see ya", "see you later", "later", "take care",
+            "ok", "okay", "cool", "great", "nice", "awesome", "perfect", "got it", "sounds good",
+            "no problem", "no worries", "who are you", "what are you");
+
+    /**
+     * Words that carry no information need on their own.
+     */
+    private static final Set<String> SMALL_TALK_WORDS = Set.of(
+            "hi", "hello", "hey", "hiya", "howdy", "yo", "there", "good", "morning", "afternoon",
+            "evening", "night", "thanks", "thank", "you", "so", "much", "a", "lot", "bye", "goodbye",
+            "ok", "okay", "cool", "great", "nice", "awesome", "perfect", "please", "all", "again",
+            "cheers", "thx", "ty", "lol", "haha", "folks", "team", "buddy", "friend", "today", "mate", "guys");
+
+    /**
+     * Openers that usually introduce an information need.
+     */
+    private static final Set<String> QUESTION_OPENERS = Set.of(
+            "what", "whats", "how", "why", "when", "where", "which", "who", "whom", "whose",
+            "is", "are", "can", "could", "does", "do", "did", "should", "will", "would", "may",
+            "explain", "describe", "list", "summarize", "summarise", "define", "tell", "show",
+            "compare", "give", "find", "outline");
+
+    @Override
+    public QueryRoute classify(String query) {
+        String raw = query == null ? "" : query.trim();
+        List<String> tokens = tokenize(raw);
+
+        if (tokens.isEmpty()) {
+            return casual(0.9);
+        }
+
+        if (SMALL_TALK_PHRASES.contains(String.join(" ", tokens))) {
+            return casual(0.95);
+        }
+
+        // Skip leading greetings so "hi, what is the leave policy?" is judged on its question
+        int start = 0;
+        while (start < tokens.size() && SMALL_TALK_WORDS.contains(tokens.get(start))) {
+            start++;
+        }
+        if (start == tokens.size()) {
+            return casual(0.85);
+        }
+        // ... but "hi, how are you doing today?" is small talk throughout, despite its opener and '?'
+        if (isSmallTalk(tokens, start)) {
+            return casual(0.9);
+        }
+
+        int contentTokens = tokens.size() - start;
+        double score = 0.0;
+        if (QUESTION_OPENERS.contains(tokens.get(start))) {
+            score += 0.4;
+        }
+        if (raw.indexOf('?') >= 0) {
+            score += 0.25;
+        }
+        if (contentTokens >= 4) {
+            score += 0.2;
+        }
+        if (contentTokens >= 8) {
+            score += 0.1;
+        }
+        if (containsDigit(raw)) {
+            score += 0.1;
+        }
+
+        if (score >= 0.45) {
+            return knowledge(Math.min(0.98, 0.5 + score));
+        }
+        // Short fragments such as "leave policy" or "holidays" are ambiguous: lean towards
+        // retrieval, but leave the final say to the fallback classifier
+        return knowledge(0.5);
+    }
+
+    private static QueryRoute casual(double confidence) {
+        return new QueryRoute(QueryRoute.Intent.CASUAL, QueryRoute.Source.LEXICON, confidence);
+    }
+
+    private static QueryRoute knowledge(double confidence) {
+        return new QueryRoute(QueryRoute.Intent.KNOWLEDGE, QueryRoute.Source.LEXICON, confidence);
+    }
+
+    /**
+     * Whether the tokens from {@code start} are a small-talk phrase, optionally
+     * followed by small-talk words.
+     */
+    private static boolean isSmallTalk(List<String> tokens, int start) {
+        for (int end = tokens.size(); end > start; end--) {
+            if (SMALL_TALK_PHRASES.contains(String.join(" ", tokens.subList(start, end)))) {
+                return true;
+            }
+            if (!SMALL_TALK_WORDS.contains(tokens.get(end - 1))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (!current.isEmpty()) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static boolean containsDigit(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
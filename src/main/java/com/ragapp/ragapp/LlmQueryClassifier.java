@@ -0,0 +1,48 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * Classifies messages with a full chat completion. Accurate, but costs an
+ * extra LLM round-trip, so {@link QueryRouter} only uses it as a fallback.
+ */
+@Component
+public class LlmQueryClassifier implements QueryClassifier {
+
+    private final ChatClient chatClient;
+
+    public LlmQueryClassifier(ChatClient.Builder chatClientBuilder) {
+        this.chatClient = chatClientBuilder.build();
+    }
+
+    @Override
+    public QueryRoute classify(String query) {
+        String classificationPrompt = """
+                Classify the following user message as either "KNOWLEDGE" or "CASUAL".
+
+                - KNOWLEDGE: The user is asking a question that requires looking up information from documents, policies, or stored knowledge.
+                - CASUAL: The user is sending a greeting, small talk, or a message that does not require any document lookup (e.g., "hi", "hello", "how are you", "thanks", "bye").
+
+                Respond with ONLY the single word: KNOWLEDGE or CASUAL
+
+                User message: %s
+                """
+                .formatted(query);
+
+        String classification = ModelBulkhead.as(ModelBulkhead.Workload.CLASSIFICATION, () -> chatClient.prompt()
+                .user(classificationPrompt)
+                .call()
+                .content());
+
+        String normalized = classification == null ? "" : classification.trim().toUpperCase();
+        boolean knowledge = normalized.contains("KNOWLEDGE");
+        // A bare one-word answer is what we asked for; anything else is a weaker signal
+        double confidence = normalized.equals("KNOWLEDGE") || normalized.equals("CASUAL") ? 1.0 : 0.6;
+
+        return new QueryRoute(
+                knowledge ? QueryRoute.Intent.KNOWLEDGE : QueryRoute.Intent.CASUAL,
+                QueryRoute.Source.LLM,
+                confidence);
+    }
+}
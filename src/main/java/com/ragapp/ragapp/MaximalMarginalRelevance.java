@@ -0,0 +1,102 @@
+package com.ragapp.ragapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maximal marginal relevance over embedding vectors: repeatedly picks the
+ * candidate that maximizes
+ * {@code lambda * sim(query, c) - (1 - lambda) * max sim(c, picked)}, so each
+ * excerpt adds something the previous ones did not say. Candidates at least
+ * {@code duplicateThreshold} similar to an already picked one are dropped as
+ * near duplicates (repeated headers, overlapping splitter windows).
+ *
+ * <p>Works on plain {@code float[]} with cosine similarity; with a few dozen
+ * candidates of a few hundred dimensions the quadratic pass takes
+ * microseconds.
+ */
+final class MaximalMarginalRelevance {
+
+    private MaximalMarginalRelevance() {
+    }
+
+    /**
+     * Orders the candidates by marginal relevance.
+     *
+     * @param query              the query embedding
+     * @param candidates         candidate embeddings
+     * @param lambda             1 ranks by relevance only, 0 by diversity only
+     * @param duplicateThreshold similarity at or above which a candidate is a
+     *                           near duplicate of a picked one
+     * @return indexes into {@code candidates}, best first, without near duplicates
+     */
+    static List<Integer> rank(float[] query, List<float[]> candidates, double lambda, double duplicateThreshold) {
+        int n = candidates.size();
+        float[][] vectors = new float[n][];
+        double[] relevance = new double[n];
+        float[] unitQuery = normalize(query);
+        for (int i = 0; i < n; i++) {
+            vectors[i] = normalize(candidates.get(i));
+            relevance[i] = dot(unitQuery, vectors[i]);
+        }
+        // Highest similarity of each candidate to any picked one
+        double[] redundancy = new double[n];
+        Arrays.fill(redundancy, Double.NEGATIVE_INFINITY);
+        boolean[] done = new boolean[n];
+
+        List<Integer> ranked = new ArrayList<>(n);
+        while (true) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                double penalty = ranked.isEmpty() ? 0 : redundancy[i];
+                double score = lambda * relevance[i] - (1 - lambda) * penalty;
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            if (best < 0) {
+                return ranked;
+            }
+            done[best] = true;
+            ranked.add(best);
+            for (int i = 0; i < n; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                double similarity = dot(vectors[best], vectors[i]);
+                if (similarity >= duplicateThreshold) {
+                    done[i] = true;
+                } else if (similarity > redundancy[i]) {
+                    redundancy[i] = similarity;
+                }
+            }
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        if (norm == 0) {
+            return vector;
+        }
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a Spring AI {@link Filter.Expression} against chunk metadata held
+ * in memory, for {@link HnswVectorStore}. Numbers compare by value whatever
+ * their type ({@code 2} equals {@code 2.0}); other values compare with
+ * {@code equals} and, for ordering, as {@link Comparable}s of the same type. A
+ * missing key matches only {@code !=} and {@code NOT IN}, as in SQL.
+ */
+final class MetadataFilter {
+
+    private MetadataFilter() {
+    }
+
+    /**
+     * @throws IllegalArgumentException for an operator or operand that cannot
+     *                                  be evaluated
+     */
+    static Predicate<Map<String, Object>> of(Filter.Expression expression) {
+        // Evaluated once up front, so a malformed expression fails at the call
+        // rather than only when it meets a candidate
+        validate(expression);
+        return metadata -> test(expression, metadata);
+    }
+
+    private static void validate(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            validate(group.content());
+        } else if (operand instanceof Filter.Expression expression) {
+            switch (expression.type()) {
+                case AND, OR -> {
+                    validate(expression.left());
+                    validate(expression.right());
+                }
+                case NOT -> validate(expression.left());
+                case EQ, NE, GT, GTE, LT, LTE, IN, NIN -> {
+                    if (!(expression.left() instanceof Filter.Key) || !(expression.right() instanceof Filter.Value)) {
+                        throw new IllegalArgumentException("Expected key and value operands in " + expression);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unsupported filter operator " + expression.type());
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported filter operand " + operand);
+        }
+    }
+
+    private static boolean test(Filter.Operand operand, Map<String, Object> metadata) {
+        if (operand instanceof Filter.Group group) {
+            return test(group.content(), metadata);
+        }
+        Filter.Expression expression = (Filter.Expression) operand;
+        return switch (expression.type()) {
+            case AND -> test(expression.left(), metadata) && test(expression.right(), metadata);
+            case OR -> test(expression.left(), metadata) || test(expression.right(), metadata);
+            case NOT -> !test(expression.left(), metadata);
+            default -> compare(expression, metadata);
+        };
+    }
+
+    private static boolean compare(Filter.Expression expression, Map<String, Object> metadata) {
+        Object actual = metadata.get(key((Filter.Key) expression.left()));
+        Object expected = ((Filter.Value) expression.right()).value();
+        return switch (expression.type()) {
+            case EQ -> actual != null && matches(actual, expected);
+            case NE -> actual == null || !matches(actual, expected);
+            case IN -> actual != null && values(expected).stream().anyMatch(value -> matches(actual, value));
+            case NIN -> actual == null || values(expected).stream().noneMatch(value -> matches(actual, value));
+            case GT -> ordered(actual, expected, order -> order > 0);
+            case GTE -> ordered(actual, expected, order -> order >= 0);
+            case LT -> ordered(actual, expected, order -> order < 0);
+            case LTE -> ordered(actual, expected, order -> order <= 0);
+            default -> throw new IllegalArgumentException("Unsupported filter operator " + expression.type());
+        };
+    }
+
+    /**
+     * Keys may be quoted in the filter text, e.g. {@code "'document_id' == 'x'"}.
+     */
+    private static String key(Filter.Key key) {
+        String name = key.key();
+        if (name.length() >= 2 && (name.startsWith("'") && name.endsWith("'")
+                || name.startsWith("\"") && name.endsWith("\""))) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private static Collection<?> values(Object expected) {
+        return expected instanceof Collection<?> collection ? collection : List.of(expected);
+    }
+
+    private static boolean matches(Object actual, Object expected) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return compareNumbers(a, b) == 0;
+        }
+        return Objects.equals(actual, expected);
+    }
+
+    /**
+     * Whether {@code actual} and {@code expected} can be ordered and their
+     * comparison satisfies {@code condition}. Values of different types, and
+     * a missing value, fail every ordering comparison.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean ordered(Object actual, Object expected, IntPredicate condition) {
+        if (actual instanceof Number a && expected instanceof Number b) {
+            return condition.test(compareNumbers(a, b));
+        }
+        if (actual instanceof Comparable a && expected != null && actual.getClass() == expected.getClass()) {
+            return condition.test(a.compareTo(expected));
+        }
+        return false;
+    }
+
+    private static int compareNumbers(Number a, Number b) {
+        if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        // Exact for integers of any size and decimals
+        return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+    }
+}
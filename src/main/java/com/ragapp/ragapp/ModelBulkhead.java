@@ -0,0 +1,271 @@
+package com.ragapp.ragapp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for calls to the local Ollama instance, which serves chat,
+ * classification and embeddings from the same few model slots. Each
+ * {@link Workload} has its own concurrency limit and queue, on top of a limit
+ * for all calls together. When a slot frees up, it goes to the waiting call
+ * with the highest priority whose workload is still under its own limit, so
+ * interactive chat overtakes queued ingestion batches instead of waiting
+ * behind them.
+ *
+ * <p>A call that finds its workload's queue full is rejected right away with
+ * a {@link ModelOverloadedException} (HTTP 429 with {@code Retry-After}).
+ *
+ * <p>Calls are assigned to workloads by {@link BulkheadChatModel} and
+ * {@link BulkheadEmbeddingModel}; code can override the default with
+ * {@link #as(Workload, Supplier)}.
+ */
+@Component
+public class ModelBulkhead {
+
+    /**
+     * Kinds of model calls, highest priority first.
+     */
+    public enum Workload {
+        /** LLM fallback of the query router; short, and blocks the rest of the request */
+        CLASSIFICATION,
+        /** Answer generation for a chat request */
+        CHAT,
+        /** Embedding of a search query */
+        QUERY_EMBEDDING,
+        /** Embedding of document chunks during ingestion */
+        INGESTION
+    }
+
+    /**
+     * Concurrency limit and maximum number of waiting calls of a workload.
+     */
+    public record Limit(int maxConcurrent, int queueCapacity) {
+    }
+
+    /**
+     * A granted slot; closing it frees the slot for the next waiting call.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final ThreadLocal<Workload> WORKLOAD = new ThreadLocal<>();
+
+    private final RagMetrics metrics;
+    private final int maxConcurrent;
+    private final Map<Workload, Limit> limits;
+    private final Duration retryAfter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Waiter> waiters = new TreeSet<>();
+    private final int[] active = new int[Workload.values().length];
+    private final int[] queued = new int[Workload.values().length];
+    private int activeTotal;
+    private long nextSequence;
+
+    public ModelBulkhead(RagMetrics metrics,
+            @Value("${rag.bulkhead.max-concurrent:4}") int maxConcurrent,
+            @Value("${rag.bulkhead.classification.max-concurrent:2}") int classificationConcurrent,
+            @Value("${rag.bulkhead.classification.queue-capacity:32}") int classificationQueue,
+            @Value("${rag.bulkhead.chat.max-concurrent:3}") int chatConcurrent,
+            @Value("${rag.bulkhead.chat.queue-capacity:32}") int chatQueue,
+            @Value("${rag.bulkhead.query-embedding.max-concurrent:2}") int queryEmbeddingConcurrent,
+            @Value("${rag.bulkhead.query-embedding.queue-capacity:64}") int queryEmbeddingQueue,
+            @Value("${rag.bulkhead.ingestion.max-concurrent:1}") int ingestionConcurrent,
+            @Value("${rag.bulkhead.ingestion.queue-capacity:64}") int ingestionQueue,
+            @Value("${rag.bulkhead.retry-after:5s}") Duration retryAfter) {
+        this(metrics, maxConcurrent, Map.of(
+                Workload.CLASSIFICATION, new Limit(classificationConcurrent, classificationQueue),
+                Workload.CHAT, new Limit(chatConcurrent, chatQueue),
+                Workload.QUERY_EMBEDDING, new Limit(queryEmbeddingConcurrent, queryEmbeddingQueue),
+                Workload.INGESTION, new Limit(ingestionConcurrent, ingestionQueue)), retryAfter);
+    }
+
+    ModelBulkhead(RagMetrics metrics, int maxConcurrent, Map<Workload, Limit> limits, Duration retryAfter) {
+        this.metrics = metrics;
+        this.maxConcurrent = maxConcurrent;
+        this.limits = new EnumMap<>(limits);
+        this.retryAfter = retryAfter;
+        metrics.bindBulkhead(this);
+    }
+
+    /**
+     * Runs {@code call} with model calls on the current thread assigned to
+     * {@code workload}, instead of the default of the model decorators.
+     */
+    public static <T> T as(Workload workload, Supplier<T> call) {
+        Workload previous = WORKLOAD.get();
+        WORKLOAD.set(workload);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                WORKLOAD.remove();
+            } else {
+                WORKLOAD.set(previous);
+            }
+        }
+    }
+
+    /**
+     * The workload set by {@link #as(Workload, Supplier)} on this thread, or
+     * {@code fallback}.
+     */
+    static Workload currentWorkload(Workload fallback) {
+        Workload workload = WORKLOAD.get();
+        return workload != null ? workload : fallback;
+    }
+
+    /**
+     * Runs a model call once a slot is free.
+     */
+    public <T> T call(Workload workload, Supplier<T> call) {
+        try (Permit permit = acquire(workload)) {
+            return call.get();
+        }
+    }
+
+    /**
+     * Waits for a slot of the given workload.
+     *
+     * @throws ModelOverloadedException if the workload's queue is full
+     */
+    public Permit acquire(Workload workload) {
+        long start = System.nanoTime();
+        Waiter waiter = null;
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && canRun(workload)) {
+                grant(workload);
+                metrics.recordModelQueueWait(workload, 0);
+                return permit(workload);
+            }
+            if (queued[workload.ordinal()] >= limits.get(workload).queueCapacity()) {
+                metrics.recordModelRejection(workload);
+                throw new ModelOverloadedException(workload, retryAfter);
+            }
+            waiter = new Waiter(workload, nextSequence++, lock.newCondition());
+            waiters.add(waiter);
+            queued[workload.ordinal()]++;
+            // A slot may be free for this workload while higher-priority calls wait for theirs
+            dispatch();
+            while (!waiter.granted) {
+                waiter.condition.await();
+            }
+        } catch (InterruptedException e) {
+            if (waiters.remove(waiter)) {
+                queued[workload.ordinal()]--;
+            } else {
+                release(workload);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a model slot", e);
+        } finally {
+            lock.unlock();
+        }
+        metrics.recordModelQueueWait(workload, System.nanoTime() - start);
+        return permit(workload);
+    }
+
+    /**
+     * Calls waiting for a slot of the given workload.
+     */
+    public int queued(Workload workload) {
+        lock.lock();
+        try {
+            return queued[workload.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls of the given workload currently running.
+     */
+    public int active(Workload workload) {
+        lock.lock();
+        try {
+            return active[workload.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit permit(Workload workload) {
+        boolean[] closed = new boolean[1];
+        return () -> {
+            lock.lock();
+            try {
+                if (!closed[0]) {
+                    closed[0] = true;
+                    release(workload);
+                }
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    private boolean canRun(Workload workload) {
+        return activeTotal < maxConcurrent && active[workload.ordinal()] < limits.get(workload).maxConcurrent();
+    }
+
+    private void grant(Workload workload) {
+        activeTotal++;
+        active[workload.ordinal()]++;
+    }
+
+    private void release(Workload workload) {
+        activeTotal--;
+        active[workload.ordinal()]--;
+        dispatch();
+    }
+
+    /**
+     * Hands free slots to waiting calls, highest priority first. Must hold the
+     * lock.
+     */
+    private void dispatch() {
+        Iterator<Waiter> it = waiters.iterator();
+        while (activeTotal < maxConcurrent && it.hasNext()) {
+            Waiter waiter = it.next();
+            if (canRun(waiter.workload)) {
+                it.remove();
+                queued[waiter.workload.ordinal()]--;
+                grant(waiter.workload);
+                waiter.granted = true;
+                waiter.condition.signal();
+            }
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+
+        private final Workload workload;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Workload workload, long sequence, Condition condition) {
+            this.workload = workload;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = workload.compareTo(other.workload);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
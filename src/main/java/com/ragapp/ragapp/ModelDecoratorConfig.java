@@ -0,0 +1,52 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Decorates the auto-configured models:
+ * <ul>
+ * <li>the chat model is admitted through the {@link ModelBulkhead}
+ * ({@link BulkheadChatModel})</li>
+ * <li>the embedding model is admitted through the bulkhead
+ * ({@link BulkheadEmbeddingModel}) and wrapped in a
+ * {@link CachingEmbeddingModel}, so every component that embeds queries (the
+ * vector store searches behind {@link ChatService} and {@link RagService}, and
+ * the {@link SemanticAnswerCache}) shares one query-embedding cache, and cache
+ * hits never wait for a model slot</li>
+ * </ul>
+ * The bulkhead can be turned off with {@code rag.bulkhead.enabled=false}.
+ */
+@Configuration
+public class ModelDecoratorConfig {
+
+    @Bean
+    static BeanPostProcessor modelDecoratorPostProcessor(ObjectProvider<QueryEmbeddingCache> cache,
+            ObjectProvider<ModelBulkhead> bulkhead, ObjectProvider<Scheduler> blockingScheduler,
+            Environment environment) {
+        boolean bulkheadEnabled = environment.getProperty("rag.bulkhead.enabled", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof EmbeddingModel model
+                        && !(bean instanceof CachingEmbeddingModel)) {
+                    EmbeddingModel admitted = bulkheadEnabled
+                            ? new BulkheadEmbeddingModel(model, bulkhead.getObject())
+                            : model;
+                    return new CachingEmbeddingModel(admitted, cache.getObject());
+                }
+                if (bulkheadEnabled && bean instanceof ChatModel model
+                        && !(bean instanceof BulkheadChatModel)) {
+                    return new BulkheadChatModel(model, bulkhead.getObject(), blockingScheduler.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.ragapp.ragapp;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Thrown by {@link ModelBulkhead} when too many model calls of a workload are
+ * already waiting. Answered with 429 Too Many Requests and a
+ * {@code Retry-After} header.
+ */
+public class ModelOverloadedException extends ResponseStatusException {
+
+    private final ModelBulkhead.Workload workload;
+    private final Duration retryAfter;
+
+    public ModelOverloadedException(ModelBulkhead.Workload workload, Duration retryAfter) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "The model is busy (" + workload.name().toLowerCase(Locale.ROOT)
+                + " queue full), please retry later");
+        this.workload = workload;
+        this.retryAfter = retryAfter;
+    }
+
+    public ModelBulkhead.Workload getWorkload() {
+        return workload;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
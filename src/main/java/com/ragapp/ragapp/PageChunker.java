@@ -0,0 +1,49 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+
+/**
+ * Splits text that arrives page by page into chunks with a
+ * {@link TokenTextSplitter}, holding back the last chunk of each page and
+ * prepending it to the next page. Chunks therefore run across page breaks as
+ * they would if the whole text were split at once, while only about a page
+ * plus a chunk of text is held in memory. Not thread-safe.
+ */
+final class PageChunker {
+
+    private final TokenTextSplitter splitter;
+    private String carry = "";
+
+    PageChunker(TokenTextSplitter splitter) {
+        this.splitter = splitter;
+    }
+
+    /**
+     * Adds a page.
+     *
+     * @return the chunks completed by it, possibly none
+     */
+    List<Document> add(String page) {
+        String text = carry.isEmpty() ? page : carry + " " + page;
+        List<Document> chunks = splitter.apply(List.of(new Document(text)));
+        if (chunks.size() < 2) {
+            // Not enough text yet to know where the chunk ends
+            carry = text;
+            return List.of();
+        }
+        carry = chunks.get(chunks.size() - 1).getContent();
+        return chunks.subList(0, chunks.size() - 1);
+    }
+
+    /**
+     * Splits the remaining text after the last page.
+     */
+    List<Document> finish() {
+        String text = carry;
+        carry = "";
+        return text.isBlank() ? List.of() : splitter.apply(List.of(new Document(text)));
+    }
+}
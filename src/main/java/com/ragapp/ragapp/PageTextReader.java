@@ -0,0 +1,126 @@
+package com.ragapp.ragapp;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.core.io.Resource;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the text of a document page by page through Tika's SAX API, so only
+ * one page of text is held in memory at a time (unlike
+ * {@code TikaDocumentReader}, which collects the whole text first). PDFs
+ * report pages as {@code <div class="page">}; other formats are cut into
+ * pieces of about {@value #MAX_PIECE_CHARS} characters at element boundaries.
+ *
+ * <p>Files are opened as {@link TikaInputStream}s on the file itself, so the
+ * PDF parser reads them randomly from disk instead of buffering the stream.
+ */
+final class PageTextReader {
+
+    static final int MAX_PIECE_CHARS = 64 * 1024;
+
+    private PageTextReader() {
+    }
+
+    /**
+     * Passes the text of each page to {@code pages}, in order. An exception
+     * thrown by {@code pages} stops parsing and is rethrown as is.
+     *
+     * @return the number of pages (or pieces) read
+     */
+    static int read(Resource resource, Consumer<String> pages) throws IOException {
+        PageHandler handler = new PageHandler(pages);
+        try (InputStream in = resource.isFile()
+                ? TikaInputStream.get(resource.getFile().toPath())
+                : TikaInputStream.get(resource.getInputStream())) {
+            new AutoDetectParser().parse(in, new BodyContentHandler(handler), new Metadata(), new ParseContext());
+        } catch (TikaException | SAXException e) {
+            handler.rethrowFailure();
+            throw new IOException("Could not extract text from " + resource.getFilename() + ": " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            handler.rethrowFailure();
+            throw e;
+        }
+        handler.rethrowFailure();
+        handler.flush();
+        return handler.pages;
+    }
+
+    private static final class PageHandler extends DefaultHandler {
+
+        private final Consumer<String> consumer;
+        private final StringBuilder text = new StringBuilder();
+        // One entry per open div: whether it is a page
+        private final Deque<Boolean> divs = new ArrayDeque<>();
+        private RuntimeException failure;
+        private int pages;
+
+        private PageHandler(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("div".equals(localName)) {
+                boolean page = "page".equals(attributes.getValue("class"));
+                if (page) {
+                    // Text outside of pages, such as annotations, goes with the previous page
+                    flush();
+                }
+                divs.push(page);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            boolean pageEnded = "div".equals(localName) && !divs.isEmpty() && divs.pop();
+            if (pageEnded || text.length() >= MAX_PIECE_CHARS) {
+                flush();
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        private void flush() {
+            if (text.isEmpty()) {
+                return;
+            }
+            String page = text.toString();
+            text.setLength(0);
+            pages++;
+            try {
+                consumer.accept(page);
+            } catch (RuntimeException e) {
+                // Parsers wrap exceptions from handlers; keep the original to rethrow
+                failure = e;
+                throw e;
+            }
+        }
+
+        private void rethrowFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ragapp.ragapp;
+
+/**
+ * Decides whether a user message is a knowledge question or casual talk.
+ */
+public interface QueryClassifier {
+
+    /**
+     * Classifies the given message.
+     *
+     * @param query the raw user message
+     * @return the routing decision, including the classifier's confidence
+     */
+    QueryRoute classify(String query);
+}
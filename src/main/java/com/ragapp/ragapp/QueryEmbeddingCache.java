@@ -0,0 +1,83 @@
+package com.ragapp.ragapp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of query embeddings, keyed on the normalized query text
+ * (see {@link QueryNormalizer}). Vectors are kept as primitive {@code float[]}
+ * and copied on the way out, so callers can never corrupt a cached entry.
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    private final int maxEntries;
+    private final Map<String, float[]> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public QueryEmbeddingCache(RagMetrics metrics, @Value("${rag.cache.embedding.max-entries:2048}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                if (size() > QueryEmbeddingCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        metrics.bindCache("embedding", hits, misses, evictions, null);
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxEntries, long bytes) {
+    }
+
+    /**
+     * Returns the cached embedding for the query, computing and storing it on a
+     * miss. The embedding call runs outside the lock, so two concurrent misses
+     * for the same query may both reach the model; the last one wins.
+     */
+    public float[] get(String query, Function<String, float[]> embedder) {
+        String key = QueryNormalizer.normalize(query);
+        float[] cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.clone();
+        }
+
+        misses.incrementAndGet();
+        float[] embedding = embedder.apply(query);
+        synchronized (entries) {
+            entries.put(key, embedding.clone());
+        }
+        return embedding;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            long bytes = 0;
+            for (float[] vector : entries.values()) {
+                bytes += (long) vector.length * Float.BYTES;
+            }
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), maxEntries, bytes);
+        }
+    }
+}
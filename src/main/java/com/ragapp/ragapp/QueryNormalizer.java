@@ -0,0 +1,34 @@
+package com.ragapp.ragapp;
+
+import java.util.Locale;
+
+/**
+ * Normalizes user queries for use as cache keys: trims, lower-cases and
+ * collapses runs of whitespace, so "What is  X?" and "what is x?" match.
+ */
+public final class QueryNormalizer {
+
+    private QueryNormalizer() {
+    }
+
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(query.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !sb.isEmpty();
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,28 @@
+package com.ragapp.ragapp;
+
+/**
+ * Outcome of routing a user message: whether it needs document retrieval,
+ * which classifier made the decision, and how confident it was.
+ */
+public record QueryRoute(Intent intent, Source source, double confidence) {
+
+    /**
+     * What the user message is asking for.
+     */
+    public enum Intent {
+        KNOWLEDGE,
+        CASUAL
+    }
+
+    /**
+     * Which classification path produced the decision.
+     */
+    public enum Source {
+        LEXICON,
+        LLM
+    }
+
+    public boolean isKnowledge() {
+        return intent == Intent.KNOWLEDGE;
+    }
+}
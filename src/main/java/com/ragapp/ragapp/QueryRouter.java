@@ -0,0 +1,61 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+
+/**
+ * Routes user messages to the knowledge or casual path. The local classifier
+ * answers first; the LLM classifier is only consulted when the local decision
+ * falls below the configured confidence.
+ *
+ * <p>Modes ({@code rag.router.mode}):
+ * <ul>
+ * <li>{@code hybrid} (default) - local first, LLM fallback on low confidence</li>
+ * <li>{@code local} - local classifier only, never calls the LLM</li>
+ * <li>{@code llm} - always classify with the LLM (previous behaviour)</li>
+ * </ul>
+ */
+@Service
+public class QueryRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryRouter.class);
+
+    enum Mode {
+        HYBRID,
+        LOCAL,
+        LLM
+    }
+
+    private final QueryClassifier localClassifier;
+    private final QueryClassifier fallbackClassifier;
+    private final Mode mode;
+    private final double minConfidence;
+
+    public QueryRouter(@Qualifier("lexiconQueryClassifier") QueryClassifier localClassifier,
+            @Qualifier("llmQueryClassifier") QueryClassifier fallbackClassifier,
+            @Value("${rag.router.mode:hybrid}") String mode,
+            @Value("${rag.router.min-confidence:0.7}") double minConfidence) {
+        this.localClassifier = localClassifier;
+        this.fallbackClassifier = fallbackClassifier;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.minConfidence = minConfidence;
+    }
+
+    public QueryRoute route(String query) {
+        QueryRoute route = switch (mode) {
+            case LLM -> fallbackClassifier.classify(query);
+            case LOCAL -> localClassifier.classify(query);
+            case HYBRID -> {
+                QueryRoute local = localClassifier.classify(query);
+                yield local.confidence() >= minConfidence ? local : fallbackClassifier.classify(query);
+            }
+        };
+        log.debug("Routed query as {} via {} (confidence {})", route.intent(), route.source(), route.confidence());
+        return route;
+    }
+}
@@ -25,10 +25,10 @@ public class RagController {
     }
 
     @PostMapping("/ingest")
-    public String ingest(@RequestParam("file") MultipartFile file) throws IOException {
+    public IngestionResult ingest(@RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) Boolean incremental) throws IOException {
         Resource resource = file.getResource();
-        ingestionService.ingest(resource);
-        return "File ingested successfully: " + file.getOriginalFilename();
+        return ingestionService.ingest(resource, file.getOriginalFilename(), incremental);
     }
 
     @GetMapping("/chat")
@@ -0,0 +1,250 @@
+package com.ragapp.ragapp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters for the chat and ingestion pipelines, exposed through
+ * Actuator ({@code /actuator/metrics}, {@code /actuator/prometheus}).
+ *
+ * <p>Chat meters carry a {@code pipeline} tag ({@code chat} for the routed
+ * {@link ChatService}, {@code rag} for the basic {@link RagService}) and a
+ * {@code path} tag ({@code knowledge} or {@code casual}). Timers and
+ * summaries publish p50/p95/p99 plus a percentile histogram.
+ */
+@Component
+public class RagMetrics {
+
+    static final String CHAT_PIPELINE = "chat";
+    static final String RAG_PIPELINE = "rag";
+    static final String KNOWLEDGE_PATH = "knowledge";
+    static final String CASUAL_PATH = "casual";
+
+    private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+    private final MeterRegistry registry;
+
+    public RagMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    static String path(QueryRoute route) {
+        return route.isKnowledge() ? KNOWLEDGE_PATH : CASUAL_PATH;
+    }
+
+    /**
+     * Records every stage of a finished chat request, including {@code total}.
+     */
+    void recordStages(String pipeline, String path, StageTimer timer) {
+        for (Map.Entry<String, Long> stage : timer.stagesNanos().entrySet()) {
+            Timer.builder("rag.chat.stage")
+                    .description("Duration of one stage of a chat request")
+                    .tags("pipeline", pipeline, "path", path, "stage", stage.getKey())
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(stage.getValue(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Records prompt and completion token counts reported by the model, if any.
+     */
+    void recordTokens(String pipeline, String path, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        recordTokens(pipeline, path, "prompt", usage.getPromptTokens());
+        recordTokens(pipeline, path, "completion", usage.getGenerationTokens());
+    }
+
+    private void recordTokens(String pipeline, String path, String type, Long tokens) {
+        if (tokens == null || tokens <= 0) {
+            return;
+        }
+        summary("rag.chat.tokens", "Tokens per model call", "tokens", pipeline, path)
+                .tag("type", type)
+                .register(registry)
+                .record(tokens);
+    }
+
+    /**
+     * Records the retrieved chunk count and the size of the context put into
+     * the prompt.
+     */
+    void recordContext(String pipeline, String path, int chunks, int contextChars) {
+        summary("rag.chat.retrieved.chunks", "Chunks retrieved for a knowledge query", "chunks",
+                pipeline, path)
+                .register(registry)
+                .record(chunks);
+        summary("rag.chat.context.size", "Characters of retrieved context in the prompt", "characters",
+                pipeline, path)
+                .register(registry)
+                .record(contextChars);
+    }
+
+    /**
+     * Counts a chat request that either started its own pipeline
+     * ({@code role=leader}) or shared one already in flight for the same query
+     * ({@code role=follower}).
+     */
+    void recordCoalescing(String type, boolean coalesced) {
+        Counter.builder("rag.chat.coalescing")
+                .description("Chat requests by whether they shared an identical in-flight request")
+                .tags("type", type, "role", coalesced ? "follower" : "leader")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Registers gauges for the running and waiting calls of each workload of
+     * the model bulkhead.
+     */
+    void bindBulkhead(ModelBulkhead bulkhead) {
+        for (ModelBulkhead.Workload workload : ModelBulkhead.Workload.values()) {
+            Gauge.builder("rag.model.queue.depth", bulkhead, b -> b.queued(workload))
+                    .description("Model calls waiting for a slot")
+                    .tag("workload", tag(workload))
+                    .register(registry);
+            Gauge.builder("rag.model.active", bulkhead, b -> b.active(workload))
+                    .description("Model calls in progress")
+                    .tag("workload", tag(workload))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Records how long a model call waited for a slot.
+     */
+    void recordModelQueueWait(ModelBulkhead.Workload workload, long nanos) {
+        Timer.builder("rag.model.queue.wait")
+                .description("Time a model call waited for a slot")
+                .tag("workload", tag(workload))
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a model call rejected because its workload's queue was full.
+     */
+    void recordModelRejection(ModelBulkhead.Workload workload) {
+        Counter.builder("rag.model.rejected")
+                .description("Model calls rejected because the queue was full")
+                .tag("workload", tag(workload))
+                .register(registry)
+                .increment();
+    }
+
+    private static String tag(ModelBulkhead.Workload workload) {
+        return workload.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Records the context selected for one prompt by maximal marginal
+     * relevance, against what packing the candidates in retrieval order would
+     * have produced.
+     *
+     * @param nearDuplicates candidates dropped as near duplicates
+     */
+    void recordContextSelection(int baselineTokens, int selectedTokens, int nearDuplicates) {
+        DistributionSummary.builder("rag.context.tokens")
+                .description("Estimated prompt tokens of the selected context")
+                .baseUnit("tokens")
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(selectedTokens);
+        DistributionSummary.builder("rag.context.tokens.saved")
+                .description("Estimated prompt tokens saved by diversity selection over retrieval order")
+                .baseUnit("tokens")
+                .publishPercentiles(PERCENTILES)
+                .register(registry)
+                .record(Math.max(0, baselineTokens - selectedTokens));
+        Counter.builder("rag.context.duplicates")
+                .description("Retrieved chunks dropped as near duplicates of a selected one")
+                .register(registry)
+                .increment(nearDuplicates);
+    }
+
+    /**
+     * Registers counters reading a cache's own hit, miss, eviction and, if it
+     * has any, invalidation counts.
+     *
+     * @param cache         {@code cache} tag value
+     * @param invalidations {@code null} for a cache that is never invalidated
+     */
+    void bindCache(String cache, AtomicLong hits, AtomicLong misses, AtomicLong evictions, AtomicLong invalidations) {
+        FunctionCounter.builder("rag.cache.requests", hits, AtomicLong::get)
+                .description("Cache lookups by result")
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("rag.cache.requests", misses, AtomicLong::get)
+                .description("Cache lookups by result")
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("rag.cache.evictions", evictions, AtomicLong::get)
+                .description("Entries evicted because the cache was full or the entry expired")
+                .tag("cache", cache)
+                .register(registry);
+        if (invalidations != null) {
+            FunctionCounter.builder("rag.cache.invalidations", invalidations, AtomicLong::get)
+                    .description("Times the whole cache was dropped")
+                    .tag("cache", cache)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Records one finished ingestion: chunk counts by outcome, stage durations
+     * and embedding throughput.
+     */
+    void recordIngestion(IngestionResult result, StageTimer timer) {
+        Counter.builder("rag.ingest.chunks").description("Chunks processed by ingestion")
+                .tag("outcome", "embedded").register(registry).increment(result.embedded());
+        Counter.builder("rag.ingest.chunks").description("Chunks processed by ingestion")
+                .tag("outcome", "reused").register(registry).increment(result.reused());
+        Counter.builder("rag.ingest.chunks").description("Chunks processed by ingestion")
+                .tag("outcome", "removed").register(registry).increment(result.removed());
+
+        Map<String, Long> stages = timer.stagesNanos();
+        for (Map.Entry<String, Long> stage : stages.entrySet()) {
+            Timer.builder("rag.ingest.stage")
+                    .description("Duration of one stage of a document ingestion")
+                    .tag("stage", stage.getKey())
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry)
+                    .record(stage.getValue(), TimeUnit.NANOSECONDS);
+        }
+
+        if (result.chunksPerSecond() > 0) {
+            DistributionSummary.builder("rag.ingest.throughput")
+                    .description("Chunks embedded and stored per second during an ingestion")
+                    .baseUnit("chunks/s")
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry)
+                    .record(result.chunksPerSecond());
+        }
+    }
+
+    private static DistributionSummary.Builder summary(String name, String description, String baseUnit,
+            String pipeline, String path) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tags("pipeline", pipeline, "path", path)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+    }
+}
@@ -1,38 +1,48 @@
 package com.ragapp.ragapp;
 
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 public class RagService {
 
     private final VectorStore vectorStore;
+    private final ContextBuilder contextBuilder;
     private final ChatClient chatClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RagMetrics metrics;
 
-    public RagService(VectorStore vectorStore, ChatClient.Builder chatClientBuilder) {
+    public RagService(VectorStore vectorStore, ContextBuilder contextBuilder, ChatClient.Builder chatClientBuilder,
+            ApplicationEventPublisher eventPublisher, RagMetrics metrics) {
         this.vectorStore = vectorStore;
+        this.contextBuilder = contextBuilder;
         this.chatClient = chatClientBuilder.build();
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
     }
 
     public void addDocument(String content) {
         Document document = new Document(content, Map.of());
         vectorStore.add(List.of(document));
+        eventPublisher.publishEvent(new CorpusChangedEvent("add"));
     }
 
     public String chat(String query) {
-        // Retrieve similar documents
-        List<Document> similarDocuments = vectorStore.similaritySearch(SearchRequest.query(query).withTopK(2));
+        StageTimer timer = new StageTimer();
 
-        String context = similarDocuments.stream()
-                .map(Document::getContent)
-                .collect(Collectors.joining("\n"));
+        // Retrieve similar documents, packed into the context token budget
+        List<String> excerpts = timer.time("search", () -> contextBuilder.build(query));
+
+        String context = String.join("\n", excerpts);
+        metrics.recordContext(RagMetrics.RAG_PIPELINE, RagMetrics.KNOWLEDGE_PATH, excerpts.size(),
+                context.length());
 
         // Construct the prompt with context
         String prompt = """
@@ -42,9 +52,14 @@ public class RagService {
                 Question: %s
                 """.formatted(context, query);
 
-        return chatClient.prompt()
+        ChatResponse response = timer.time("generation", () -> chatClient.prompt()
                 .user(prompt)
                 .call()
-                .content();
+                .chatResponse());
+        metrics.recordTokens(RagMetrics.RAG_PIPELINE, RagMetrics.KNOWLEDGE_PATH, response.getMetadata().getUsage());
+
+        timer.finish();
+        metrics.recordStages(RagMetrics.RAG_PIPELINE, RagMetrics.KNOWLEDGE_PATH, timer);
+        return response.getResult().getOutput().getContent();
     }
 }
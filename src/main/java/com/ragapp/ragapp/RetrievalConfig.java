@@ -0,0 +1,77 @@
+package com.ragapp.ragapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Locale;
+
+/**
+ * Chooses how {@link ChatService} retrieves context ({@code rag.retrieval.mode}):
+ * <ul>
+ * <li>{@code vector} (default) - similarity search on the vector store</li>
+ * <li>{@code hybrid} - full-text and vector search fused by rank, see
+ * {@link HybridChunkRetriever}; needs the pgvector store</li>
+ * </ul>
+ *
+ * <p>With the pgvector store and {@code rag.vectorstore.pgvector.precision=half},
+ * vector search (also the fallback of hybrid search) runs on half-precision
+ * embeddings, see {@link HalfPrecisionChunkRetriever}. pgvector retrievers
+ * accept a per-search {@code hnsw.ef_search}, see {@link EfSearchChunkRetriever}.
+ */
+@Configuration
+public class RetrievalConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RetrievalConfig.class);
+
+    enum Mode {
+        VECTOR,
+        HYBRID
+    }
+
+    @Bean
+    public ChunkRetriever chunkRetriever(VectorStore vectorStore, EmbeddingModel embeddingModel,
+            ObjectProvider<JdbcTemplate> jdbcTemplate, ObjectProvider<PlatformTransactionManager> transactionManager,
+            @Value("${rag.retrieval.mode:vector}") String mode,
+            @Value("${rag.vectorstore.type:pgvector}") String vectorStoreType,
+            @Value("${rag.retrieval.hybrid.candidates:20}") int candidates,
+            @Value("${rag.retrieval.hybrid.rrf-k:60}") int rrfK,
+            ObjectProvider<HalfPrecisionMigration> halfPrecisionMigration,
+            ObjectProvider<FullTextSearchIndex> fullTextSearchIndex,
+            @Value("${rag.vectorstore.pgvector.precision:full}") String precision,
+            @Value("${rag.vectorstore.pgvector.rerank-candidates:40}") int rerankCandidates) {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        boolean pgvector = "pgvector".equalsIgnoreCase(vectorStoreType.trim()) && jdbc != null;
+        ChunkRetriever vectorRetriever = new VectorChunkRetriever(vectorStore);
+        HalfPrecisionMigration migration = halfPrecisionMigration.getIfAvailable();
+        if ("half".equalsIgnoreCase(precision.trim())) {
+            if (pgvector && migration != null) {
+                vectorRetriever = new HalfPrecisionChunkRetriever(jdbc, embeddingModel, migration, vectorRetriever,
+                        rerankCandidates);
+            } else {
+                log.warn("rag.vectorstore.pgvector.precision=half needs the pgvector store; using full precision");
+            }
+        }
+        ChunkRetriever retriever = vectorRetriever;
+        if (Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)) == Mode.HYBRID) {
+            FullTextSearchIndex textIndex = fullTextSearchIndex.getIfAvailable();
+            if (pgvector && textIndex != null) {
+                retriever = new HybridChunkRetriever(jdbc, embeddingModel, textIndex, vectorRetriever, candidates,
+                        rrfK);
+            } else {
+                log.warn("rag.retrieval.mode=hybrid needs the pgvector store; using vector-only retrieval");
+            }
+        }
+        PlatformTransactionManager transactions = transactionManager.getIfAvailable();
+        return pgvector && transactions != null
+                ? new EfSearchChunkRetriever(retriever, jdbc, transactions)
+                : retriever;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches knowledge answers keyed on the query embedding. A new query is served
+ * from the cache when its cosine similarity to a cached query reaches the
+ * configured threshold. Entries are evicted least-recently-used once the cache
+ * is full and expire after the configured TTL. The whole cache is dropped on
+ * every {@link CorpusChangedEvent}, so answers never cite deleted chunks.
+ *
+ * <p>Lookups scan all entries (one dot product each), which stays well under a
+ * millisecond for the few hundred entries this cache is meant to hold.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<Long, Entry> entries;
+    private final AtomicLong nextKey = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SemanticAnswerCache(EmbeddingModel embeddingModel, RagMetrics metrics,
+            @Value("${rag.cache.answer.enabled:true}") boolean enabled,
+            @Value("${rag.cache.answer.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${rag.cache.answer.max-entries:500}") int maxEntries,
+            @Value("${rag.cache.answer.ttl:30m}") Duration ttl) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > SemanticAnswerCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        metrics.bindCache("answer", hits, misses, evictions, invalidations);
+    }
+
+    /**
+     * Result of a cache lookup. On a miss, pass it back to
+     * {@link #put(Probe, ChatResponse)} so the query is embedded only once.
+     */
+    public record Probe(float[] embedding, long epoch, ChatResponse cached) {
+
+        public boolean hit() {
+            return cached != null;
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {
+    }
+
+    public Probe lookup(String query) {
+        if (!enabled) {
+            return new Probe(null, epoch.get(), null);
+        }
+        long currentEpoch = epoch.get();
+        float[] embedding = normalize(embeddingModel.embed(query));
+
+        ChatResponse cached = findSimilar(embedding);
+        if (cached != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return new Probe(embedding, currentEpoch, cached);
+    }
+
+    /**
+     * Stores an answer for a missed probe, unless the corpus changed since the
+     * probe was taken (the answer may then reference removed chunks).
+     */
+    public void put(Probe probe, ChatResponse response) {
+        if (!enabled || probe.embedding() == null || probe.hit()) {
+            return;
+        }
+        synchronized (entries) {
+            if (probe.epoch() != epoch.get()) {
+                return;
+            }
+            entries.put(nextKey.incrementAndGet(), new Entry(probe.embedding(), response, System.nanoTime()));
+        }
+    }
+
+    @EventListener
+    public void onCorpusChanged(CorpusChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            epoch.incrementAndGet();
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size());
+        }
+    }
+
+    private ChatResponse findSimilar(float[] embedding) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Long bestKey = null;
+            double bestSimilarity = similarityThreshold;
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Entry> candidate = iterator.next();
+                if (now - candidate.getValue().createdAt() > ttlNanos) {
+                    iterator.remove();
+                    evictions.incrementAndGet();
+                    continue;
+                }
+                double similarity = dot(embedding, candidate.getValue().embedding());
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    bestKey = candidate.getKey();
+                }
+            }
+            // get() refreshes the entry's LRU position
+            return Optional.ofNullable(bestKey).map(entries::get).map(Entry::response).orElse(null);
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Entry(float[] embedding, ChatResponse response, long createdAt) {
+    }
+}
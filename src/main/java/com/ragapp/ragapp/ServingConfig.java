@@ -0,0 +1,58 @@
+package com.ragapp.ragapp;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads for blocking work outside the request thread: the routing and
+ * retrieval steps of streamed answers (including the chat UI's), waiting for
+ * a model slot, and speculative retrieval.
+ *
+ * <p>With {@code spring.threads.virtual.enabled=true} (the default here),
+ * Tomcat serves requests on virtual threads and this executor starts a
+ * virtual thread per task, so a conversation waiting seconds for the model
+ * holds no platform thread. Otherwise it is a fixed pool of
+ * {@code rag.serving.platform-threads}, the same limit as Tomcat's default
+ * request pool.
+ *
+ * <p>Speculative retrieval has an executor of its own: it is started, and
+ * waited for, by tasks already running on the blocking executor. In a fixed
+ * pool, those tasks could take every thread and wait for retrievals queued
+ * behind them.
+ */
+@Configuration
+public class ServingConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService blockingExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${rag.serving.platform-threads:200}") int platformThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(platformThreads,
+                Thread.ofPlatform().name("blocking-", 0).daemon().factory());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService speculativeExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${rag.serving.platform-threads:200}") int platformThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("speculative-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(platformThreads,
+                Thread.ofPlatform().name("speculative-", 0).daemon().factory());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Qualifier("blockingExecutor") ExecutorService blockingExecutor) {
+        return Schedulers.fromExecutorService(blockingExecutor, "blocking");
+    }
+}
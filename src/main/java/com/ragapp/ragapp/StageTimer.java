@@ -0,0 +1,55 @@
+package com.ragapp.ragapp;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each stage of one chat request took. Stages may run on
+ * different threads, so recording is synchronized.
+ */
+class StageTimer {
+
+    private final long start = System.nanoTime();
+    private final Map<String, Long> stagesNanos = new LinkedHashMap<>();
+
+    <T> T time(String stage, Supplier<T> work) {
+        long stageStart = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, System.nanoTime() - stageStart);
+        }
+    }
+
+    void record(String stage, long nanos) {
+        synchronized (stagesNanos) {
+            stagesNanos.put(stage, nanos);
+        }
+    }
+
+    /**
+     * Returns the stage durations recorded so far plus the wall-clock
+     * {@code total}, which is less than their sum when stages overlapped.
+     */
+    Map<String, Long> finish() {
+        long total = System.nanoTime() - start;
+        synchronized (stagesNanos) {
+            stagesNanos.put("total", total);
+            Map<String, Long> result = new LinkedHashMap<>();
+            stagesNanos.forEach((stage, nanos) -> result.put(stage, nanos / 1_000_000));
+            return Collections.unmodifiableMap(result);
+        }
+    }
+
+    /**
+     * Stage durations in nanoseconds, including {@code total} once
+     * {@link #finish()} was called.
+     */
+    Map<String, Long> stagesNanos() {
+        synchronized (stagesNanos) {
+            return new LinkedHashMap<>(stagesNanos);
+        }
+    }
+}
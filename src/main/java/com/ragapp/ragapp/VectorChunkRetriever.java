@@ -0,0 +1,24 @@
+package com.ragapp.ragapp;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+
+/**
+ * Plain similarity search on the vector store.
+ */
+public class VectorChunkRetriever implements ChunkRetriever {
+
+    private final VectorStore vectorStore;
+
+    public VectorChunkRetriever(VectorStore vectorStore) {
+        this.vectorStore = vectorStore;
+    }
+
+    @Override
+    public List<Document> retrieve(SearchRequest request) {
+        return vectorStore.similaritySearch(request);
+    }
+}
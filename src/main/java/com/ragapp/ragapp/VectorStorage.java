@@ -0,0 +1,157 @@
+package com.ragapp.ragapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-width float vectors kept off the Java heap in fixed-size segments.
+ * With a file, segments are memory-mapped from it, so vectors are persisted by
+ * the page cache and reopened without being read onto the heap; without one,
+ * they live in direct buffers.
+ *
+ * <p>Slots are addressed by index and never move. Not synchronized: callers
+ * must not grow or write the storage while other threads read it.
+ */
+final class VectorStorage implements Closeable {
+
+    /**
+     * Vectors per segment; 12 MB per segment for 768 dimensions.
+     */
+    private static final int SEGMENT_VECTORS = 4096;
+
+    private final int dimensions;
+    private final FileChannel channel;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final List<FloatBuffer> floatSegments = new ArrayList<>();
+
+    private VectorStorage(int dimensions, FileChannel channel) {
+        this.dimensions = dimensions;
+        this.channel = channel;
+    }
+
+    static VectorStorage inMemory(int dimensions) {
+        return new VectorStorage(dimensions, null);
+    }
+
+    /**
+     * Opens (or creates) a vector file. Existing contents are kept, so slots
+     * written before a restart are readable again.
+     */
+    static VectorStorage mapped(Path file, int dimensions) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        VectorStorage storage = new VectorStorage(dimensions, channel);
+        long segmentBytes = storage.segmentBytes();
+        long existingSegments = (channel.size() + segmentBytes - 1) / segmentBytes;
+        for (long i = 0; i < existingSegments; i++) {
+            storage.addSegment();
+        }
+        return storage;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    void set(int slot, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException(
+                    "Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        while (slot / SEGMENT_VECTORS >= floatSegments.size()) {
+            addSegment();
+        }
+        floatSegments.get(slot / SEGMENT_VECTORS).put(offset(slot), vector);
+    }
+
+    float[] get(int slot) {
+        float[] vector = new float[dimensions];
+        floatSegments.get(slot / SEGMENT_VECTORS).get(offset(slot), vector);
+        return vector;
+    }
+
+    /**
+     * Copies the first {@code length} components of a slot.
+     */
+    float[] prefix(int slot, int length) {
+        float[] prefix = new float[Math.min(length, dimensions)];
+        floatSegments.get(slot / SEGMENT_VECTORS).get(offset(slot), prefix);
+        return prefix;
+    }
+
+    float dot(int slot, float[] query) {
+        FloatBuffer segment = floatSegments.get(slot / SEGMENT_VECTORS);
+        int base = offset(slot);
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += segment.get(base + i) * query[i];
+        }
+        return sum;
+    }
+
+    float dot(int slot, int other) {
+        FloatBuffer segment = floatSegments.get(slot / SEGMENT_VECTORS);
+        FloatBuffer otherSegment = floatSegments.get(other / SEGMENT_VECTORS);
+        int base = offset(slot);
+        int otherBase = offset(other);
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += segment.get(base + i) * otherSegment.get(otherBase + i);
+        }
+        return sum;
+    }
+
+    /**
+     * Flushes mapped segments to the file; a no-op for in-memory storage.
+     */
+    void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+
+    private int offset(int slot) {
+        return (slot % SEGMENT_VECTORS) * dimensions;
+    }
+
+    private long segmentBytes() {
+        return (long) SEGMENT_VECTORS * dimensions * Float.BYTES;
+    }
+
+    private void addSegment() {
+        long size = segmentBytes();
+        ByteBuffer segment;
+        if (channel != null) {
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * size, size);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not map vector file segment " + segments.size(), e);
+            }
+        } else {
+            segment = ByteBuffer.allocateDirect(Math.toIntExact(size));
+        }
+        // Fixed byte order, so vector files can move between machines
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segments.add(segment);
+        floatSegments.add(segment.asFloatBuffer());
+    }
+}
@@ -0,0 +1,71 @@
+package com.ragapp.ragapp;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/vector-store")
+@ConditionalOnProperty(name = "rag.vectorstore.type", havingValue = "pgvector", matchIfMissing = true)
+public class VectorStoreController {
+
+    private final HalfPrecisionMigration halfPrecisionMigration;
+    private final HnswIndexManager indexManager;
+    private final FullTextSearchIndex fullTextSearchIndex;
+
+    public VectorStoreController(HalfPrecisionMigration halfPrecisionMigration, HnswIndexManager indexManager,
+            FullTextSearchIndex fullTextSearchIndex) {
+        this.halfPrecisionMigration = halfPrecisionMigration;
+        this.indexManager = indexManager;
+        this.fullTextSearchIndex = fullTextSearchIndex;
+    }
+
+    @GetMapping("/half-precision")
+    public HalfPrecisionMigration.Status halfPrecisionStatus() {
+        return halfPrecisionMigration.status();
+    }
+
+    @PostMapping("/half-precision/migrate")
+    public HalfPrecisionMigration.Status migrateToHalfPrecision(
+            @RequestParam(defaultValue = "false") boolean dropFullIndex) {
+        return halfPrecisionMigration.start(dropFullIndex);
+    }
+
+    @GetMapping("/full-text")
+    public FullTextSearchIndex.Status fullTextStatus() {
+        return fullTextSearchIndex.status();
+    }
+
+    @PostMapping("/full-text/migrate")
+    public FullTextSearchIndex.Status migrateFullText() {
+        return fullTextSearchIndex.start();
+    }
+
+    @GetMapping("/index")
+    public HnswIndexManager.IndexStatus indexStatus() {
+        return indexManager.status();
+    }
+
+    @PostMapping("/index/bulk-load")
+    public HnswIndexManager.IndexStatus dropIndexForBulkLoad() {
+        return indexManager.dropForBulkLoad();
+    }
+
+    /**
+     * Rebuilds the HNSW index; parameters left out use the
+     * {@code rag.vectorstore.pgvector.index.*} settings.
+     */
+    @PostMapping("/index/rebuild")
+    public HnswIndexManager.IndexStatus rebuildIndex(@RequestParam(required = false) Integer m,
+            @RequestParam(required = false) Integer efConstruction,
+            @RequestParam(required = false) Integer maintenanceWorkers,
+            @RequestParam(required = false) String maintenanceWorkMem,
+            @RequestParam(defaultValue = "false") boolean concurrently) {
+        HnswIndexManager.BuildOptions defaults = indexManager.defaults();
+        return indexManager.rebuild(new HnswIndexManager.BuildOptions(
+                m != null ? m : defaults.m(),
+                efConstruction != null ? efConstruction : defaults.efConstruction(),
+                maintenanceWorkers != null ? maintenanceWorkers : defaults.maintenanceWorkers(),
+                maintenanceWorkMem != null ? maintenanceWorkMem : defaults.maintenanceWorkMem(),
+                concurrently));
+    }
+}
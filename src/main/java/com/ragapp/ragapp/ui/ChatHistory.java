@@ -0,0 +1,58 @@
+package com.ragapp.ragapp.ui;
+
+import com.ragapp.ragapp.ChatResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Server-side model of one session's chat history, shown through a
+ * {@code VirtualList}. Messages are kept as Markdown and rendered only while
+ * they are in view, and only the newest {@code capacity} are kept, so the
+ * memory a session needs does not grow with its length. Not thread-safe;
+ * used under the UI lock.
+ */
+final class ChatHistory {
+
+    enum Role {
+        USER,
+        ASSISTANT
+    }
+
+    /**
+     * One finished message. The id makes every message distinct to the list,
+     * even when two have the same text.
+     */
+    record Message(long id, Role role, String markdown, List<ChatResponse.Reference> references) {
+    }
+
+    private final int capacity;
+    private final List<Message> messages = new ArrayList<>();
+    private long nextId;
+
+    ChatHistory(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Appends a message, dropping the oldest ones beyond the capacity.
+     *
+     * @return the added message
+     */
+    Message add(Role role, String markdown, List<ChatResponse.Reference> references) {
+        Message message = new Message(nextId++, role, markdown, List.copyOf(references));
+        messages.add(message);
+        if (messages.size() > capacity) {
+            messages.subList(0, messages.size() - capacity).clear();
+        }
+        return message;
+    }
+
+    /**
+     * Live, read-only view of the messages, oldest first.
+     */
+    List<Message> messages() {
+        return Collections.unmodifiableList(messages);
+    }
+}
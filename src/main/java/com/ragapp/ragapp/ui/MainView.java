@@ -2,11 +2,17 @@ package com.ragapp.ragapp.ui;
 
 import com.ragapp.ragapp.ChatResponse;
 import com.ragapp.ragapp.ChatService;
-import com.ragapp.ragapp.IngestionService;
+import com.ragapp.ragapp.ChatStreamEvent;
+import com.ragapp.ragapp.ChunkRepository;
+import com.ragapp.ragapp.DocumentService;
+import com.ragapp.ragapp.IngestionJobService;
+import com.ragapp.ragapp.IngestionJobStatus;
+import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.Html;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Div;
@@ -23,32 +29,55 @@ import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.component.tabs.TabSheet;
 import com.vaadin.flow.component.textfield.TextArea;
 import com.vaadin.flow.component.upload.Upload;
-import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
+import com.vaadin.flow.component.upload.receivers.FileBuffer;
+import com.vaadin.flow.component.virtuallist.VirtualList;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
 import com.vaadin.flow.theme.lumo.LumoUtility;
-import org.springframework.core.io.InputStreamResource;
+import reactor.core.Disposable;
 
-import java.util.concurrent.CompletableFuture;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
 
 @Route("")
 public class MainView extends VerticalLayout {
 
-    private final IngestionService ingestionService;
+    private static final int STREAM_BATCH_SIZE = 32;
+    private static final Duration STREAM_BATCH_INTERVAL = Duration.ofMillis(50);
+    // Older messages are dropped; the list itself only renders the ones in view
+    private static final int MAX_CHAT_MESSAGES = 200;
+
+    private final IngestionJobService ingestionJobService;
     private final ChatService chatService;
     private final VectorStoreService vectorStoreService;
 
     private final Grid<VectorStoreEntry> grid;
-    private final Div chatHistoryContainer;
+    private final VectorStoreDataProvider gridDataProvider;
+    private final ComboBox<ChunkRepository.StoredDocument> documentSelect;
+    private final ChatHistory chatHistory;
+    private final VirtualList<ChatHistory.Message> chatMessages;
+    private final Div liveMessages;
+    // The question just sent, rendered with the slide-in animation until the next history entry; -1 if none.
+    // Only addToHistory changes it, so the renderer stays free of side effects
+    private long animatedMessageId = -1;
     private final TextArea chatInput;
 
-    public MainView(IngestionService ingestionService, ChatService chatService, VectorStoreService vectorStoreService) {
-        this.ingestionService = ingestionService;
+    public MainView(IngestionJobService ingestionJobService, ChatService chatService,
+            VectorStoreService vectorStoreService) {
+        this.ingestionJobService = ingestionJobService;
         this.chatService = chatService;
         this.vectorStoreService = vectorStoreService;
 
         // Initialize components FIRST before using them
         grid = new Grid<>(VectorStoreEntry.class, false);
-        chatHistoryContainer = new Div();
+        gridDataProvider = new VectorStoreDataProvider(vectorStoreService);
+        documentSelect = new ComboBox<>();
+        chatHistory = new ChatHistory(MAX_CHAT_MESSAGES);
+        chatMessages = new VirtualList<>();
+        liveMessages = new Div();
         chatInput = new TextArea();
 
         // Configure main layout
@@ -86,27 +115,29 @@ public class MainView extends VerticalLayout {
         H3 uploadHeader = new H3("Upload PDF Documents");
         uploadHeader.addClassName(LumoUtility.Margin.Bottom.SMALL);
 
-        MemoryBuffer buffer = new MemoryBuffer();
+        // Spooled to disk, so large PDFs never sit in the heap; the ingestion job deletes the file
+        FileBuffer buffer = new FileBuffer(fileName -> Files.createTempFile("ragapp-upload-", ".pdf").toFile());
         Upload upload = new Upload(buffer);
         upload.setAcceptedFileTypes("application/pdf", ".pdf");
         upload.setMaxFiles(1);
         upload.setDropLabel(new Html("<span>Drop PDF file here or click to browse</span>"));
         upload.addClassName("upload-component");
 
-        // Upload success handler
+        // Upload success handler: ingestion runs as a background job
         upload.addSucceededListener(event -> {
             try {
-                ingestionService.ingest(new InputStreamResource(buffer.getInputStream()));
+                IngestionJobStatus job = ingestionJobService.submit(
+                        buffer.getFileData().getFile().toPath(), event.getFileName());
 
-                // Show success notification
                 Notification notification = Notification.show(
-                        "✓ File uploaded successfully: " + event.getFileName(),
+                        "⏳ Ingesting " + event.getFileName() + "...",
                         3000,
                         Notification.Position.TOP_CENTER);
-                notification.addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+                notification.addThemeVariants(NotificationVariant.LUMO_CONTRAST);
 
-                // Refresh grid
-                refreshGrid();
+                UI ui = UI.getCurrent();
+                ingestionJobService.completion(job.id()).ifPresent(completion -> completion
+                        .thenAccept(status -> ui.access(() -> showIngestionResult(status))));
 
                 // Clear upload to allow new upload without refresh
                 upload.clearFileList();
@@ -133,6 +164,11 @@ public class MainView extends VerticalLayout {
         H3 gridHeader = new H3("Vector Store Embeddings");
         gridHeader.addClassNames(LumoUtility.Margin.Top.MEDIUM, LumoUtility.Margin.Bottom.SMALL);
 
+        grid.addColumn(VectorStoreEntry::source)
+                .setHeader("Document")
+                .setFlexGrow(1)
+                .setResizable(true);
+
         grid.addColumn(VectorStoreEntry::content)
                 .setHeader("Content")
                 .setFlexGrow(2)
@@ -152,16 +188,51 @@ public class MainView extends VerticalLayout {
 
         grid.addClassName("vector-grid");
         grid.setHeight("400px");
+        grid.setSelectionMode(Grid.SelectionMode.MULTI);
 
-        // Initial load
-        refreshGrid();
+        // Rows are fetched lazily, page by page, as the grid scrolls
+        grid.setItems(gridDataProvider);
 
         // Refresh button
         Button refreshButton = new Button("Refresh", new Icon(VaadinIcon.REFRESH));
         refreshButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
         refreshButton.addClickListener(e -> refreshGrid());
 
-        layout.add(uploadHeader, upload, gridHeader, grid, refreshButton);
+        // Bulk deletion: a whole document, or the chunks selected in the grid
+        documentSelect.setPlaceholder("Select a document");
+        documentSelect.setItemLabelGenerator(document -> document.source() + " (" + document.chunks() + " chunks)");
+        documentSelect.setWidth("320px");
+
+        Button deleteDocumentButton = new Button("Delete Document", new Icon(VaadinIcon.TRASH));
+        deleteDocumentButton.addThemeVariants(ButtonVariant.LUMO_ERROR);
+        deleteDocumentButton.addClickListener(e -> {
+            ChunkRepository.StoredDocument document = documentSelect.getValue();
+            if (document == null) {
+                Notification.show("Please select a document", 2000, Notification.Position.MIDDLE);
+                return;
+            }
+            confirmAndDeleteBulk("all " + document.chunks() + " chunks of " + document.source(),
+                    () -> vectorStoreService.deleteDocument(document.documentId()));
+        });
+
+        Button deleteSelectedButton = new Button("Delete Selected", new Icon(VaadinIcon.TRASH));
+        deleteSelectedButton.addThemeVariants(ButtonVariant.LUMO_ERROR, ButtonVariant.LUMO_TERTIARY);
+        deleteSelectedButton.addClickListener(e -> {
+            List<String> ids = grid.getSelectedItems().stream().map(VectorStoreEntry::id).toList();
+            if (ids.isEmpty()) {
+                Notification.show("Please select entries to delete", 2000, Notification.Position.MIDDLE);
+                return;
+            }
+            confirmAndDeleteBulk(ids.size() + " selected entries", () -> vectorStoreService.deleteByIds(ids));
+        });
+
+        HorizontalLayout bulkActions = new HorizontalLayout(documentSelect, deleteDocumentButton,
+                deleteSelectedButton, refreshButton);
+        bulkActions.setAlignItems(Alignment.BASELINE);
+
+        refreshDocuments();
+
+        layout.add(uploadHeader, upload, gridHeader, grid, bulkActions);
         return layout;
     }
 
@@ -175,12 +246,32 @@ public class MainView extends VerticalLayout {
         H3 chatHeader = new H3("Chat with AI");
         chatHeader.addClassName(LumoUtility.Margin.Bottom.SMALL);
 
-        chatHistoryContainer.addClassName("chat-history");
+        // Finished messages live in a virtualized list over the server-side
+        // history: only the messages in view exist as components, rendered
+        // from Markdown when they scroll in. The exchange in progress is shown
+        // below it as regular components, so streamed tokens can be appended
+        // in place.
+        chatMessages.addClassName("chat-history-list");
+        chatMessages.setRenderer(new ComponentRenderer<>(this::renderMessage));
+        chatMessages.setItems(chatHistory.messages());
+        chatMessages.setWidthFull();
+        chatMessages.getStyle().set("flex", "1 1 auto");
+
+        liveMessages.addClassName("chat-history");
+        liveMessages.setWidthFull();
+        liveMessages.getStyle()
+                .set("flex", "0 0 auto")
+                .set("max-height", "60%")
+                .set("overflow-y", "auto");
+
+        Div chatHistoryContainer = new Div(chatMessages, liveMessages);
         chatHistoryContainer.setWidthFull();
         chatHistoryContainer.getStyle()
-                .set("max-height", "500px")
-                .set("overflow-y", "auto")
+                .set("display", "flex")
+                .set("flex-direction", "column")
+                .set("height", "500px")
                 .set("padding", "1rem")
+                .set("box-sizing", "border-box")
                 .set("background-color", "var(--lumo-contrast-5pct)")
                 .set("border-radius", "var(--lumo-border-radius-m)")
                 .set("margin-bottom", "1rem");
@@ -218,7 +309,7 @@ public class MainView extends VerticalLayout {
         }
 
         // Add user message to chat
-        addChatMessage(query, true);
+        addToHistory(ChatHistory.Role.USER, query, List.of());
 
         // Clear input
         chatInput.clear();
@@ -259,53 +350,170 @@ public class MainView extends VerticalLayout {
                 .set("color", "var(--lumo-secondary-text-color)");
 
         loadingWrapper.add(loadingDiv);
-        chatHistoryContainer.add(loadingWrapper);
+        liveMessages.add(loadingWrapper);
 
         // Scroll to bottom immediately
-        chatHistoryContainer.getElement().executeJs("this.scrollTop = this.scrollHeight");
+        scrollChatToBottom();
 
         // Get current UI instance
         UI ui = UI.getCurrent();
+        StreamingAnswer streamingAnswer = new StreamingAnswer(loadingWrapper);
+
+        // Stream the answer; tokens are batched so each push carries a few of them
+        Disposable subscription = chatService.chatStream(query)
+                .bufferTimeout(STREAM_BATCH_SIZE, STREAM_BATCH_INTERVAL)
+                .subscribe(
+                        events -> ui.access(() -> streamingAnswer.append(events)),
+                        throwable -> ui.access(() -> streamingAnswer.fail(throwable)),
+                        () -> ui.access(streamingAnswer::complete));
+        streamingAnswer.cancelOnDetach(ui, subscription);
+    }
 
-        // Execute chat request asynchronously
-        CompletableFuture.supplyAsync(() -> {
-            try {
-                return chatService.chat(query);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }).thenAccept(chatResponse -> {
-            // Update UI in a thread-safe manner
-            ui.access(() -> {
-                // Remove loading indicator wrapper
-                chatHistoryContainer.remove(loadingWrapper);
-
-                // Add AI response
-                addChatMessage(chatResponse.answer(), false);
-
-                // Add references section if available
-                if (chatResponse.references() != null && !chatResponse.references().isEmpty()) {
-                    addReferencesSection(chatResponse.references());
+    /**
+     * Renders one streamed answer below the chat history and moves it into the
+     * history once complete. All methods are called under the UI lock via
+     * {@link UI#access}.
+     */
+    private final class StreamingAnswer {
+
+        private final Div loadingWrapper;
+        private final MarkdownRenderer.Incremental renderer = MarkdownRenderer.incremental();
+        private final StringBuilder markdown = new StringBuilder();
+        private List<ChatResponse.Reference> references = List.of();
+        private Div answerWrapper;
+        private Div answerContent;
+        private Div answerTail;
+        private Registration detachRegistration;
+
+        private StreamingAnswer(Div loadingWrapper) {
+            this.loadingWrapper = loadingWrapper;
+        }
+
+        private void cancelOnDetach(UI ui, Disposable subscription) {
+            detachRegistration = ui.addDetachListener(event -> subscription.dispose());
+        }
+
+        private void append(List<ChatStreamEvent> events) {
+            StringBuilder chunk = new StringBuilder();
+            for (ChatStreamEvent event : events) {
+                switch (event.type()) {
+                    case REFERENCES -> references = event.references();
+                    case TOKEN -> chunk.append(event.token());
+                    case DONE -> {
+                    }
                 }
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+            markdown.append(chunk);
+
+            // Replace the loading indicator with the answer bubble on the first token
+            if (answerContent == null) {
+                loadingWrapper.removeFromParent();
+                MessageBubble bubble = createMessageBubble("", false);
+                answerWrapper = bubble.wrapper();
+                liveMessages.add(answerWrapper);
+                answerContent = bubble.content();
+                answerTail = new Div();
+                answerContent.add(answerTail);
+            }
+            apply(renderer.append(chunk.toString()));
+            scrollChatToBottom();
+        }
 
-                // Scroll to bottom
-                chatHistoryContainer.getElement().executeJs("this.scrollTop = this.scrollHeight");
-            });
-        }).exceptionally(throwable -> {
-            // Handle errors in a thread-safe manner
-            ui.access(() -> {
-                chatHistoryContainer.remove(loadingWrapper);
-                Notification notification = Notification.show(
-                        "Error: " + throwable.getMessage(),
-                        5000,
-                        Notification.Position.TOP_CENTER);
-                notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
-            });
-            return null;
-        });
+        /**
+         * Finished blocks are appended once as their own element; only the open
+         * trailing block is re-sent to the browser on every batch.
+         */
+        private void apply(MarkdownRenderer.Update update) {
+            if (!update.committedHtml().isEmpty()) {
+                Div block = new Div();
+                block.getElement().setProperty("innerHTML", update.committedHtml());
+                answerContent.addComponentAtIndex(answerContent.indexOf(answerTail), block);
+            }
+            answerTail.getElement().setProperty("innerHTML", update.tailHtml());
+        }
+
+        private void complete() {
+            removeDetachListener();
+            // The finished answer, with its references, becomes a history entry
+            removeLiveNodes();
+            addToHistory(ChatHistory.Role.ASSISTANT, markdown.toString(),
+                    references != null ? references : List.of());
+        }
+
+        private void fail(Throwable throwable) {
+            removeDetachListener();
+            removeLiveNodes();
+            Notification notification = Notification.show(
+                    "Error: " + throwable.getMessage(),
+                    5000,
+                    Notification.Position.TOP_CENTER);
+            notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+        }
+
+        /**
+         * Removes this answer's own nodes; other answers may still be streaming
+         * into the live area.
+         */
+        private void removeLiveNodes() {
+            loadingWrapper.removeFromParent();
+            if (answerWrapper != null) {
+                answerWrapper.removeFromParent();
+            }
+        }
+
+        private void removeDetachListener() {
+            if (detachRegistration != null) {
+                detachRegistration.remove();
+            }
+        }
+    }
+
+    private void addToHistory(ChatHistory.Role role, String markdown, List<ChatResponse.Reference> references) {
+        ChatHistory.Message message = chatHistory.add(role, markdown, references);
+        // Answers already slid in while streaming below the list
+        animatedMessageId = role == ChatHistory.Role.USER ? message.id() : -1;
+        chatMessages.getListDataView().refreshAll();
+        chatMessages.scrollToEnd();
+    }
+
+    private void scrollChatToBottom() {
+        chatMessages.scrollToEnd();
+        liveMessages.getElement().executeJs("this.scrollTop = this.scrollHeight");
     }
 
-    private void addChatMessage(String message, boolean isUser) {
+    /**
+     * Renders a history entry when it scrolls into view. May be called any
+     * number of times per entry, in any order.
+     */
+    private Component renderMessage(ChatHistory.Message message) {
+        boolean isUser = message.role() == ChatHistory.Role.USER;
+        Div wrapper = createMessageBubble(message.markdown(), isUser).wrapper();
+        if (message.id() == animatedMessageId) {
+            wrapper.addClassName("new-message");
+        }
+        if (isUser || message.references().isEmpty()) {
+            return wrapper;
+        }
+        return new Div(wrapper, createReferencesSection(message.references()));
+    }
+
+    private static void setMarkdown(Div target, String markdown) {
+        target.getElement().setProperty("innerHTML", MarkdownRenderer.toHtml(markdown));
+    }
+
+    /**
+     * A message bubble in its full-width wrapper.
+     *
+     * @param content the element holding the message content, so streamed AI
+     *                answers can be updated in place
+     */
+    private record MessageBubble(Div wrapper, Div content) {
+    }
+
+    private static MessageBubble createMessageBubble(String message, boolean isUser) {
         // Create a wrapper div for proper layout
         Div messageWrapper = new Div();
         messageWrapper.setWidthFull();
@@ -316,6 +524,7 @@ public class MainView extends VerticalLayout {
 
         Div messageDiv = new Div();
         messageDiv.addClassName(isUser ? "user-message" : "ai-message");
+        Div contentHolder = messageDiv;
 
         // Style the message bubble
         messageDiv.getStyle()
@@ -334,17 +543,21 @@ public class MainView extends VerticalLayout {
                     .set("background-color", "var(--lumo-contrast-10pct)")
                     .set("color", "var(--lumo-body-text-color)");
 
-            // Convert markdown to HTML for AI messages
-            String htmlContent = MarkdownRenderer.toHtml(message);
-            Html htmlComponent = new Html("<div>" + htmlContent + "</div>");
-            messageDiv.add(htmlComponent);
+            // Convert markdown to HTML for AI messages; streamed answers start
+            // empty and add their rendered blocks as child elements instead
+            Div htmlContent = new Div();
+            if (!message.isEmpty()) {
+                setMarkdown(htmlContent, message);
+            }
+            messageDiv.add(htmlContent);
+            contentHolder = htmlContent;
         }
 
         messageWrapper.add(messageDiv);
-        chatHistoryContainer.add(messageWrapper);
+        return new MessageBubble(messageWrapper, contentHolder);
     }
 
-    private void addReferencesSection(java.util.List<ChatResponse.Reference> references) {
+    private static Component createReferencesSection(List<ChatResponse.Reference> references) {
         Div referencesWrapper = new Div();
         referencesWrapper.setWidthFull();
         referencesWrapper.getStyle()
@@ -401,7 +614,34 @@ public class MainView extends VerticalLayout {
         }
 
         referencesWrapper.add(referencesDiv);
-        chatHistoryContainer.add(referencesWrapper);
+        return referencesWrapper;
+    }
+
+    private void showIngestionResult(IngestionJobStatus status) {
+        switch (status.state()) {
+            case COMPLETED -> {
+                Notification notification = Notification.show(
+                        "✓ File ingested successfully: " + status.fileName()
+                                + " (" + status.chunksEmbedded() + " embedded, "
+                                + status.chunksReused() + " reused, "
+                                + status.chunksRemoved() + " removed)",
+                        3000,
+                        Notification.Position.TOP_CENTER);
+                notification.addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+                refreshGrid();
+            }
+            case CANCELLED -> Notification.show(
+                    "Ingestion cancelled: " + status.fileName(),
+                    3000,
+                    Notification.Position.TOP_CENTER);
+            default -> {
+                Notification notification = Notification.show(
+                        "✗ Ingestion failed: " + status.error(),
+                        5000,
+                        Notification.Position.TOP_CENTER);
+                notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+            }
+        }
     }
 
     private void confirmAndDelete(VectorStoreEntry entry) {
@@ -434,9 +674,48 @@ public class MainView extends VerticalLayout {
         dialog.open();
     }
 
+    private void confirmAndDeleteBulk(String description, Supplier<DocumentService.DeletionResult> delete) {
+        ConfirmDialog dialog = new ConfirmDialog();
+        dialog.setHeader("Delete Entries");
+        dialog.setText("Are you sure you want to delete " + description + "? This action cannot be undone.");
+        dialog.setCancelable(true);
+        dialog.setConfirmText("Delete");
+        dialog.setConfirmButtonTheme("error primary");
+
+        dialog.addConfirmListener(event -> {
+            try {
+                DocumentService.DeletionResult result = delete.get();
+                Notification notification = Notification.show(
+                        "✓ Deleted " + result.rowsRemoved() + " entries in " + result.elapsedMs() + " ms",
+                        3000,
+                        Notification.Position.TOP_CENTER);
+                notification.addThemeVariants(NotificationVariant.LUMO_SUCCESS);
+                grid.deselectAll();
+                refreshGrid();
+            } catch (Exception e) {
+                Notification notification = Notification.show(
+                        "✗ Failed to delete: " + e.getMessage(),
+                        5000,
+                        Notification.Position.TOP_CENTER);
+                notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+            }
+        });
+
+        dialog.open();
+    }
+
+    private void refreshDocuments() {
+        try {
+            documentSelect.setItems(vectorStoreService.listDocuments());
+        } catch (Exception e) {
+            documentSelect.setItems(List.of());
+        }
+    }
+
     private void refreshGrid() {
         try {
-            grid.setItems(vectorStoreService.getVectorStoreEntries());
+            refreshDocuments();
+            gridDataProvider.refreshAll();
         } catch (Exception e) {
             Notification notification = Notification.show(
                     "Error loading embeddings: " + e.getMessage(),
@@ -1,19 +1,29 @@
 package com.ragapp.ragapp.ui;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Utility class to convert Markdown text to HTML for rendering in Vaadin
  * components.
  * Supports basic markdown syntax including bold, italic, code blocks, lists,
  * and line breaks.
+ *
+ * <p>Rendering is a single forward pass: lines are grouped into blocks
+ * (paragraphs, headers, lists, fenced code) by a small state machine, and each
+ * finished block is written to the output with one scan for inline markup and
+ * HTML escaping. No regular expressions are involved, so long answers cannot
+ * trigger backtracking.
+ *
+ * <p>{@link #incremental()} renders a streamed message chunk by chunk: blocks
+ * that can no longer change are emitted once, and only the trailing open block
+ * is re-rendered on every chunk.
  */
 public class MarkdownRenderer {
 
     /**
      * Converts markdown text to HTML.
-     * 
+     *
      * @param markdown The markdown text to convert
      * @return HTML string ready for rendering
      */
@@ -22,128 +32,476 @@ public class MarkdownRenderer {
             return "";
         }
 
-        String html = markdown;
+        StringBuilder html = new StringBuilder(markdown.length() + (markdown.length() >> 2));
+        BlockRenderer renderer = new BlockRenderer(html);
+        int lineStart = 0;
+        for (int i = 0; i < markdown.length(); i++) {
+            if (markdown.charAt(i) == '\n') {
+                renderer.line(markdown, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        renderer.line(markdown, lineStart, markdown.length());
+        renderer.finish();
+        return html.toString();
+    }
 
-        // Escape HTML special characters first to prevent XSS
-        html = escapeHtml(html);
+    /**
+     * Creates a renderer for a message that arrives in chunks.
+     */
+    public static Incremental incremental() {
+        return new Incremental();
+    }
 
-        // Convert code blocks (```code```) - must be done before inline code
-        html = convertCodeBlocks(html);
+    /**
+     * HTML produced by one {@link Incremental#append(String)} call.
+     *
+     * @param committedHtml blocks completed by this chunk; they never change again
+     *                      and follow the blocks committed by earlier calls
+     * @param tailHtml      rendering of the still open trailing block, replacing
+     *                      the tail returned by the previous call
+     */
+    public record Update(String committedHtml, String tailHtml) {
+    }
 
-        // Convert inline code (`code`)
-        html = convertInlineCode(html);
+    /**
+     * Stateful renderer for streamed messages. Concatenating every
+     * {@link Update#committedHtml()} and the last {@link Update#tailHtml()}
+     * yields exactly {@link #toHtml(String)} of the whole message. Not
+     * thread-safe.
+     */
+    public static final class Incremental {
 
-        // Convert bold (**text** or __text__)
-        html = html.replaceAll("\\*\\*(.+?)\\*\\*", "<strong>$1</strong>");
-        html = html.replaceAll("__(.+?)__", "<strong>$1</strong>");
+        private final StringBuilder committed = new StringBuilder();
+        private final StringBuilder tail = new StringBuilder();
+        private final StringBuilder partialLine = new StringBuilder();
+        private final BlockRenderer blocks = new BlockRenderer(committed);
 
-        // Convert italic (*text* or _text_)
-        html = html.replaceAll("(?<!\\*)\\*(?!\\*)(.+?)(?<!\\*)\\*(?!\\*)", "<em>$1</em>");
-        html = html.replaceAll("(?<!_)_(?!_)(.+?)(?<!_)_(?!_)", "<em>$1</em>");
+        private Incremental() {
+        }
 
-        // Convert headers
-        html = convertHeaders(html);
+        public Update append(String chunk) {
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                if (c == '\n') {
+                    blocks.line(partialLine, 0, partialLine.length());
+                    partialLine.setLength(0);
+                } else {
+                    partialLine.append(c);
+                }
+            }
 
-        // Convert unordered lists
-        html = convertUnorderedLists(html);
+            // Preview the open block as if the message ended here
+            tail.setLength(0);
+            BlockRenderer preview = blocks.copyTo(tail);
+            preview.line(partialLine, 0, partialLine.length());
+            preview.finish();
 
-        // Convert ordered lists
-        html = convertOrderedLists(html);
+            return new Update(drainCommitted(), tail.toString());
+        }
 
-        // Convert line breaks (double newline to paragraph, single newline to <br>)
-        html = html.replaceAll("\\n\\n", "</p><p>");
-        html = html.replaceAll("\\n", "<br>");
+        /**
+         * Closes the message. The returned tail is always empty.
+         */
+        public Update finish() {
+            blocks.line(partialLine, 0, partialLine.length());
+            partialLine.setLength(0);
+            blocks.finish();
+            return new Update(drainCommitted(), "");
+        }
 
-        // Wrap in paragraph tags
-        html = "<p>" + html + "</p>";
+        private String drainCommitted() {
+            String html = committed.toString();
+            committed.setLength(0);
+            return html;
+        }
+    }
 
-        // Clean up empty paragraphs
-        html = html.replaceAll("<p>\\s*</p>", "");
+    /**
+     * Line-driven block state machine. Each completed block is written to
+     * {@code out}; the open block is buffered until a line ends it.
+     */
+    private static final class BlockRenderer {
 
-        return html;
-    }
+        private enum Kind {
+            NONE,
+            PARAGRAPH,
+            CODE,
+            UNORDERED,
+            ORDERED
+        }
 
-    private static String escapeHtml(String text) {
-        return text
-                .replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#x27;");
-    }
+        private final StringBuilder out;
+        private Kind kind = Kind.NONE;
+        /** Paragraph or code lines, separated by '\n'. */
+        private final StringBuilder text = new StringBuilder();
+        /** List item texts; continuation lines are separated by '\n'. */
+        private final List<StringBuilder> items = new ArrayList<>();
+        private boolean blankSinceItem;
+
+        private BlockRenderer(StringBuilder out) {
+            this.out = out;
+        }
+
+        private BlockRenderer copyTo(StringBuilder target) {
+            BlockRenderer copy = new BlockRenderer(target);
+            copy.kind = kind;
+            copy.text.append(text);
+            for (StringBuilder item : items) {
+                copy.items.add(new StringBuilder(item));
+            }
+            copy.blankSinceItem = blankSinceItem;
+            return copy;
+        }
+
+        private void line(CharSequence s, int start, int end) {
+            if (end > start && s.charAt(end - 1) == '\r') {
+                end--;
+            }
+
+            if (kind == Kind.CODE) {
+                int first = skipWhitespace(s, start, end);
+                if (startsWithFence(s, first, end)) {
+                    closeBlock();
+                } else {
+                    if (!text.isEmpty()) {
+                        text.append('\n');
+                    }
+                    text.append(s, start, end);
+                }
+                return;
+            }
+
+            int first = skipWhitespace(s, start, end);
+            if (first == end) {
+                // Blank line: ends a paragraph; lists may continue after it
+                if (kind == Kind.PARAGRAPH) {
+                    closeBlock();
+                } else if (kind == Kind.UNORDERED || kind == Kind.ORDERED) {
+                    blankSinceItem = true;
+                }
+                return;
+            }
+
+            if (startsWithFence(s, first, end)) {
+                closeBlock();
+                int closing = indexOfFence(s, first + 3, end);
+                if (closing >= 0) {
+                    // ```code``` on a single line
+                    text.append(s, first + 3, closing);
+                    kind = Kind.CODE;
+                    closeBlock();
+                } else {
+                    // Anything after the opening fence is a language tag, not code
+                    kind = Kind.CODE;
+                }
+                return;
+            }
+
+            int level = headerLevel(s, start, end);
+            if (level > 0) {
+                closeBlock();
+                int content = skipWhitespace(s, start + level, end);
+                out.append("<h").append(level).append('>');
+                renderInline(s, content, end, out);
+                out.append("</h").append(level).append('>');
+                return;
+            }
+
+            Kind itemKind = Kind.NONE;
+            int itemContent = unorderedItemContent(s, start, end);
+            if (itemContent >= 0) {
+                itemKind = Kind.UNORDERED;
+            } else {
+                itemContent = orderedItemContent(s, start, end);
+                if (itemContent >= 0) {
+                    itemKind = Kind.ORDERED;
+                }
+            }
+            if (itemKind != Kind.NONE) {
+                if (kind != itemKind) {
+                    closeBlock();
+                    kind = itemKind;
+                }
+                items.add(new StringBuilder().append(s, itemContent, end));
+                blankSinceItem = false;
+                return;
+            }
+
+            // Plain text: continues the last list item, the paragraph, or starts a paragraph
+            if ((kind == Kind.UNORDERED || kind == Kind.ORDERED) && !blankSinceItem) {
+                items.get(items.size() - 1).append('\n').append(s, start, end);
+                return;
+            }
+            if (kind == Kind.PARAGRAPH) {
+                text.append('\n');
+            } else {
+                closeBlock();
+                kind = Kind.PARAGRAPH;
+            }
+            text.append(s, start, end);
+        }
 
-    private static String convertCodeBlocks(String text) {
-        Pattern pattern = Pattern.compile("```([\\s\\S]*?)```");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
+        private void finish() {
+            closeBlock();
+        }
 
-        while (matcher.find()) {
-            String code = matcher.group(1).trim();
-            matcher.appendReplacement(sb, "<pre><code>" + code + "</code></pre>");
+        private void closeBlock() {
+            switch (kind) {
+                case PARAGRAPH -> {
+                    out.append("<p>");
+                    renderInline(text, 0, text.length(), out);
+                    out.append("</p>");
+                }
+                case CODE -> {
+                    int from = 0;
+                    int to = text.length();
+                    while (from < to && text.charAt(from) <= ' ') {
+                        from++;
+                    }
+                    while (to > from && text.charAt(to - 1) <= ' ') {
+                        to--;
+                    }
+                    out.append("<pre><code>");
+                    escape(text, from, to, out);
+                    out.append("</code></pre>");
+                }
+                case UNORDERED, ORDERED -> {
+                    String tag = kind == Kind.UNORDERED ? "ul" : "ol";
+                    out.append('<').append(tag).append('>');
+                    for (StringBuilder item : items) {
+                        out.append("<li>");
+                        renderInline(item, 0, item.length(), out);
+                        out.append("</li>");
+                    }
+                    out.append("</").append(tag).append('>');
+                }
+                case NONE -> {
+                }
+            }
+            kind = Kind.NONE;
+            text.setLength(0);
+            items.clear();
+            blankSinceItem = false;
         }
-        matcher.appendTail(sb);
+    }
+
+    /**
+     * Writes {@code s[from, to)} with bold, italic and inline code converted and
+     * everything else HTML-escaped. Newlines become {@code <br>}.
+     */
+    private static void renderInline(CharSequence s, int from, int to, StringBuilder out) {
+        // A closer search that failed from one position fails from any later
+        // position on the same line, so failures are remembered per marker to
+        // keep the scan linear on long lines full of stray '*' and '_'
+        int lineEnd = -1;
+        int[] failedOnLine = {-1, -1, -1, -1};
+        boolean[] backtickRunFailed = new boolean[4];
+
+        int i = from;
+        while (i < to) {
+            char c = s.charAt(i);
+
+            if (c == '`') {
+                int run = runLength(s, i, to, '`');
+                boolean known = run < backtickRunFailed.length && backtickRunFailed[run];
+                int closing = known ? -1 : findBacktickRun(s, i + run, to, run);
+                if (closing < 0 && run < backtickRunFailed.length) {
+                    backtickRunFailed[run] = true;
+                }
+                if (closing > i + run) {
+                    out.append("<code>");
+                    escape(s, i + run, closing, out);
+                    out.append("</code>");
+                    i = closing + run;
+                } else {
+                    out.append(s, i, i + run);
+                    i += run;
+                }
+                continue;
+            }
 
-        return sb.toString();
+            if (c == '*' || c == '_') {
+                if (i >= lineEnd) {
+                    lineEnd = lineEnd(s, i, to);
+                }
+                boolean isDouble = i + 1 < to && s.charAt(i + 1) == c;
+                int marker = (c == '*' ? 0 : 2) + (isDouble ? 0 : 1);
+                if (isDouble) {
+                    // Bold: at least one character, closed on the same line
+                    int closing = failedOnLine[marker] == lineEnd ? -1 : findDouble(s, i + 3, lineEnd, c);
+                    if (closing < 0) {
+                        failedOnLine[marker] = lineEnd;
+                    }
+                    if (closing >= 0) {
+                        out.append("<strong>");
+                        renderInline(s, i + 2, closing, out);
+                        out.append("</strong>");
+                        i = closing + 2;
+                    } else {
+                        out.append(c).append(c);
+                        i += 2;
+                    }
+                    continue;
+                }
+                boolean afterSame = i > from && s.charAt(i - 1) == c;
+                int closing = -1;
+                if (!afterSame && failedOnLine[marker] != lineEnd) {
+                    closing = findSingle(s, i + 2, lineEnd, c);
+                    if (closing < 0) {
+                        failedOnLine[marker] = lineEnd;
+                    }
+                }
+                if (closing >= 0) {
+                    out.append("<em>");
+                    renderInline(s, i + 1, closing, out);
+                    out.append("</em>");
+                    i = closing + 1;
+                } else {
+                    out.append(c);
+                    i++;
+                }
+                continue;
+            }
+
+            if (c == '\n') {
+                out.append("<br>");
+            } else {
+                escape(c, out);
+            }
+            i++;
+        }
     }
 
-    private static String convertInlineCode(String text) {
-        return text.replaceAll("`([^`]+)`", "<code>$1</code>");
+    private static void escape(CharSequence s, int from, int to, StringBuilder out) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '\n') {
+                out.append("<br>");
+            } else {
+                escape(c, out);
+            }
+        }
     }
 
-    private static String convertHeaders(String text) {
-        // H1-H6
-        text = text.replaceAll("(?m)^######\\s+(.+)$", "<h6>$1</h6>");
-        text = text.replaceAll("(?m)^#####\\s+(.+)$", "<h5>$1</h5>");
-        text = text.replaceAll("(?m)^####\\s+(.+)$", "<h4>$1</h4>");
-        text = text.replaceAll("(?m)^###\\s+(.+)$", "<h3>$1</h3>");
-        text = text.replaceAll("(?m)^##\\s+(.+)$", "<h2>$1</h2>");
-        text = text.replaceAll("(?m)^#\\s+(.+)$", "<h1>$1</h1>");
-        return text;
+    private static void escape(char c, StringBuilder out) {
+        switch (c) {
+            case '&' -> out.append("&amp;");
+            case '<' -> out.append("&lt;");
+            case '>' -> out.append("&gt;");
+            case '"' -> out.append("&quot;");
+            case '\'' -> out.append("&#x27;");
+            default -> out.append(c);
+        }
     }
 
-    private static String convertUnorderedLists(String text) {
-        Pattern pattern = Pattern.compile("(?m)^[*-]\\s+(.+)$");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
-        boolean inList = false;
+    private static int skipWhitespace(CharSequence s, int from, int to) {
+        while (from < to && Character.isWhitespace(s.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
 
-        while (matcher.find()) {
-            if (!inList) {
-                matcher.appendReplacement(sb, "<ul><li>$1</li>");
-                inList = true;
-            } else {
-                matcher.appendReplacement(sb, "<li>$1</li>");
+    private static int lineEnd(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '\n') {
+                return i;
             }
         }
-        matcher.appendTail(sb);
+        return to;
+    }
 
-        if (inList) {
-            sb.append("</ul>");
+    private static int runLength(CharSequence s, int from, int to, char c) {
+        int i = from;
+        while (i < to && s.charAt(i) == c) {
+            i++;
         }
+        return i - from;
+    }
 
-        return sb.toString();
+    private static boolean startsWithFence(CharSequence s, int from, int to) {
+        return to - from >= 3 && s.charAt(from) == '`' && s.charAt(from + 1) == '`' && s.charAt(from + 2) == '`';
     }
 
-    private static String convertOrderedLists(String text) {
-        Pattern pattern = Pattern.compile("(?m)^\\d+\\.\\s+(.+)$");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
-        boolean inList = false;
+    private static int indexOfFence(CharSequence s, int from, int to) {
+        for (int i = from; i + 3 <= to; i++) {
+            if (startsWithFence(s, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        while (matcher.find()) {
-            if (!inList) {
-                matcher.appendReplacement(sb, "<ol><li>$1</li>");
-                inList = true;
+    /** Start of the next run of exactly {@code run} backticks, or -1. */
+    private static int findBacktickRun(CharSequence s, int from, int to, int run) {
+        int i = from;
+        while (i < to) {
+            if (s.charAt(i) == '`') {
+                int length = runLength(s, i, to, '`');
+                if (length == run) {
+                    return i;
+                }
+                i += length;
             } else {
-                matcher.appendReplacement(sb, "<li>$1</li>");
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /** First {@code cc} pair at or after {@code from}, or -1. */
+    private static int findDouble(CharSequence s, int from, int to, char c) {
+        for (int i = from; i + 1 < to; i++) {
+            if (s.charAt(i) == c && s.charAt(i + 1) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** First lone {@code c} (no identical neighbour) at or after {@code from}, or -1. */
+    private static int findSingle(CharSequence s, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c && s.charAt(i - 1) != c && (i + 1 >= to || s.charAt(i + 1) != c)) {
+                return i;
             }
         }
-        matcher.appendTail(sb);
+        return -1;
+    }
 
-        if (inList) {
-            sb.append("</ol>");
+    /** Level of a {@code # Header} line (1-6), or 0 if the line is not a header. */
+    private static int headerLevel(CharSequence s, int start, int end) {
+        int hashes = runLength(s, start, end, '#');
+        if (hashes == 0 || hashes > 6 || start + hashes >= end
+                || !Character.isWhitespace(s.charAt(start + hashes))) {
+            return 0;
         }
+        return skipWhitespace(s, start + hashes, end) < end ? hashes : 0;
+    }
 
-        return sb.toString();
+    /** Content start of a {@code - item} or {@code * item} line, or -1. */
+    private static int unorderedItemContent(CharSequence s, int start, int end) {
+        if (end - start < 2) {
+            return -1;
+        }
+        char marker = s.charAt(start);
+        if ((marker != '-' && marker != '*') || !Character.isWhitespace(s.charAt(start + 1))) {
+            return -1;
+        }
+        int content = skipWhitespace(s, start + 1, end);
+        return content < end ? content : -1;
+    }
+
+    /** Content start of a {@code 1. item} line, or -1. */
+    private static int orderedItemContent(CharSequence s, int start, int end) {
+        int i = start;
+        while (i < end && Character.isDigit(s.charAt(i))) {
+            i++;
+        }
+        if (i == start || i + 1 >= end || s.charAt(i) != '.' || !Character.isWhitespace(s.charAt(i + 1))) {
+            return -1;
+        }
+        int content = skipWhitespace(s, i + 1, end);
+        return content < end ? content : -1;
     }
 }
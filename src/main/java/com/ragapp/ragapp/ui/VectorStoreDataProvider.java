@@ -0,0 +1,63 @@
+package com.ragapp.ragapp.ui;
+
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Lazy data provider for the vector store grid. Vaadin asks for rows by
+ * offset; this provider remembers the last id of every page it has served and
+ * turns each request into a keyset query starting from the nearest known id
+ * before it. Scrolling page by page therefore only ever skips the rows between
+ * that id and the requested offset.
+ *
+ * <p>A jump to a deep offset that has not been visited, such as dragging the
+ * scroll bar to the end, still skips every row from the nearest anchor (up to
+ * the whole table) once. Its last id then becomes an anchor, so scrolling on
+ * from there is cheap again.
+ */
+class VectorStoreDataProvider extends AbstractBackEndDataProvider<VectorStoreEntry, Void> {
+
+    private final VectorStoreService vectorStoreService;
+
+    /**
+     * Row offset mapped to the id of the row just before it.
+     */
+    private final TreeMap<Integer, String> keysetAnchors = new TreeMap<>();
+
+    VectorStoreDataProvider(VectorStoreService vectorStoreService) {
+        this.vectorStoreService = vectorStoreService;
+    }
+
+    @Override
+    protected Stream<VectorStoreEntry> fetchFromBackEnd(Query<VectorStoreEntry, Void> query) {
+        int offset = query.getOffset();
+        int limit = query.getLimit();
+
+        Map.Entry<Integer, String> anchor = keysetAnchors.floorEntry(offset);
+        List<VectorStoreEntry> rows = anchor == null
+                ? vectorStoreService.fetchEntries(null, offset, limit)
+                : vectorStoreService.fetchEntries(anchor.getValue(), offset - anchor.getKey(), limit);
+
+        if (!rows.isEmpty()) {
+            keysetAnchors.put(offset + rows.size(), rows.get(rows.size() - 1).id());
+        }
+        return rows.stream();
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<VectorStoreEntry, Void> query) {
+        return vectorStoreService.countEntries();
+    }
+
+    @Override
+    public void refreshAll() {
+        // Rows may have been added or removed, so known offsets are stale
+        keysetAnchors.clear();
+        super.refreshAll();
+    }
+}
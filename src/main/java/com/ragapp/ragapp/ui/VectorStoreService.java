@@ -1,64 +1,64 @@
 package com.ragapp.ragapp.ui;
 
-import org.springframework.jdbc.core.JdbcTemplate;
+import com.ragapp.ragapp.ChunkRepository;
+import com.ragapp.ragapp.DocumentService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
 public class VectorStoreService {
 
-    private final JdbcTemplate jdbcTemplate;
+    private static final Logger log = LoggerFactory.getLogger(VectorStoreService.class);
 
-    public VectorStoreService(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    private final ChunkRepository chunkRepository;
+    private final DocumentService documentService;
+
+    public VectorStoreService(ChunkRepository chunkRepository, DocumentService documentService) {
+        this.chunkRepository = chunkRepository;
+        this.documentService = documentService;
+    }
+
+    public int countEntries() {
+        return chunkRepository.countChunks();
     }
 
-    public List<VectorStoreEntry> getVectorStoreEntries() {
-        return jdbcTemplate.query(
-                "SELECT id, content, embedding::text FROM vector_store",
-                (rs, rowNum) -> {
-                    String id = rs.getString("id");
-                    String content = rs.getString("content");
-                    String embeddingRaw = rs.getString("embedding");
-                    return new VectorStoreEntry(id, content, parseAndFormatEmbedding(embeddingRaw));
-                });
+    /**
+     * Fetches a page of entries ordered by id using keyset pagination.
+     *
+     * @param afterId id of the last row before the page, or {@code null} to
+     *                start from the beginning
+     * @param skip    rows to skip after {@code afterId}; kept small by the caller
+     * @param limit   maximum number of rows to return
+     */
+    public List<VectorStoreEntry> fetchEntries(String afterId, int skip, int limit) {
+        return chunkRepository.findChunks(afterId, skip, limit).stream()
+                .map(chunk -> new VectorStoreEntry(chunk.id(), chunk.source(), chunk.content(),
+                        chunk.embeddingPreview()))
+                .toList();
     }
 
     public boolean deleteById(String id) {
         try {
-            System.out.println("Attempting to delete document with ID: " + id);
-            int rowsAffected = jdbcTemplate.update("DELETE FROM vector_store WHERE id::text = ?", id);
-            System.out.println("Rows affected: " + rowsAffected);
-            return rowsAffected > 0;
+            return documentService.deleteChunks(List.of(id)).rowsRemoved() > 0;
         } catch (Exception e) {
-            System.err.println("Error deleting document: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error deleting document {}", id, e);
             return false;
         }
     }
 
-    private String parseAndFormatEmbedding(String raw) {
-        if (raw == null || raw.isEmpty()) {
-            return "[]";
-        }
-        // PostgreSQL vector is returned as "[v1,v2,v3,...]"
-        String cleaned = raw.replace("[", "").replace("]", "");
-        String[] parts = cleaned.split(",");
+    public DocumentService.DeletionResult deleteByIds(Collection<String> ids) {
+        return documentService.deleteChunks(ids);
+    }
 
-        StringBuilder sb = new StringBuilder("[");
-        int limit = Math.min(5, parts.length);
-        for (int i = 0; i < limit; i++) {
-            sb.append(parts[i].trim());
-            if (i < limit - 1) {
-                sb.append(", ");
-            }
-        }
-        if (parts.length > 5) {
-            sb.append(", ...");
-        }
-        sb.append("]");
-        return sb.toString();
+    public DocumentService.DeletionResult deleteDocument(String documentId) {
+        return documentService.deleteDocument(documentId);
     }
 
+    public List<ChunkRepository.StoredDocument> listDocuments() {
+        return documentService.listDocuments();
+    }
 }
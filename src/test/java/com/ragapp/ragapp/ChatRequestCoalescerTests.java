@@ -0,0 +1,99 @@
+package com.ragapp.ragapp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatRequestCoalescerTests {
+
+    private static final QueryRoute ROUTE = new QueryRoute(QueryRoute.Intent.KNOWLEDGE, QueryRoute.Source.LEXICON, 1.0);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatRequestCoalescer coalescer = new ChatRequestCoalescer(new RagMetrics(registry), true);
+
+    @Test
+    void concurrentIdenticalCallsShareOnePipelineRun() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<ChatResponse> leader = executor.submit(() -> coalescer.call("What is the leave policy?", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return ChatResponse.withoutReferences("25 days", ROUTE);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<ChatResponse>> followers = List.of(
+                    executor.submit(() -> coalescer.call("what is the  leave policy?", () -> {
+                        runs.incrementAndGet();
+                        return ChatResponse.withoutReferences("other", ROUTE);
+                    })),
+                    executor.submit(() -> coalescer.call("WHAT IS THE LEAVE POLICY?", () -> {
+                        runs.incrementAndGet();
+                        return ChatResponse.withoutReferences("other", ROUTE);
+                    })));
+            while (registry.counter("rag.chat.coalescing", "type", "call", "role", "follower").count() < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS).answer()).isEqualTo("25 days");
+            for (Future<ChatResponse> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS).answer()).isEqualTo("25 days");
+            }
+            assertThat(runs).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Once finished, the next request runs the pipeline again
+        assertThat(coalescer.call("What is the leave policy?",
+                () -> ChatResponse.withoutReferences("fresh", ROUTE)).answer()).isEqualTo("fresh");
+    }
+
+    @Test
+    void lateStreamSubscribersReplayEarlierEvents() {
+        AtomicInteger runs = new AtomicInteger();
+        Sinks.Many<ChatStreamEvent> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<ChatStreamEvent> first = coalescer.stream("expense limit", () -> {
+            runs.incrementAndGet();
+            return tokens.asFlux();
+        });
+        List<ChatStreamEvent> firstEvents = new ArrayList<>();
+        first.subscribe(firstEvents::add);
+        tokens.tryEmitNext(ChatStreamEvent.token("EUR "));
+
+        List<ChatStreamEvent> secondEvents = new ArrayList<>();
+        coalescer.stream("Expense limit", Flux::empty).subscribe(secondEvents::add);
+        tokens.tryEmitNext(ChatStreamEvent.token("500"));
+        tokens.tryEmitComplete();
+
+        assertThat(runs).hasValue(1);
+        assertThat(secondEvents).containsExactlyElementsOf(firstEvents).hasSize(2);
+        assertThat(registry.counter("rag.chat.coalescing", "type", "stream", "role", "follower").count())
+                .isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ragapp.ragapp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkBatcherTests {
+
+    @Test
+    void batchesAreBoundedByChunksAndTokens() {
+        // One token per character
+        List<Document> chunks = IntStream.of(3, 3, 3, 3, 3, 8, 1)
+                .mapToObj(length -> new Document("x".repeat(length), Map.of()))
+                .toList();
+
+        List<List<Document>> batches = batch(new ChunkBatcher(3, 7, String::length), chunks);
+
+        assertThat(batches).extracting(List::size).containsExactly(2, 2, 1, 1, 1);
+        assertThat(batches.stream().flatMap(List::stream).toList()).containsExactlyElementsOf(chunks);
+    }
+
+    @Test
+    void chunkCountLimitAppliesWhenTokensAllow() {
+        List<Document> chunks = IntStream.range(0, 7)
+                .mapToObj(i -> new Document("chunk " + i, Map.of()))
+                .toList();
+
+        assertThat(batch(new ChunkBatcher(3, 1000, String::length), chunks))
+                .extracting(List::size)
+                .containsExactly(3, 3, 1);
+    }
+
+    private static List<List<Document>> batch(ChunkBatcher batcher, List<Document> chunks) {
+        List<List<Document>> batches = new ArrayList<>();
+        for (Document chunk : chunks) {
+            List<Document> full = batcher.add(chunk);
+            if (full != null) {
+                batches.add(full);
+            }
+        }
+        List<Document> last = batcher.drain();
+        if (!last.isEmpty()) {
+            batches.add(last);
+        }
+        return batches;
+    }
+}
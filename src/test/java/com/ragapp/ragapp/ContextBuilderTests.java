@@ -0,0 +1,37 @@
+package com.ragapp.ragapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextBuilderTests {
+
+    // top-k 3, 100-token budget, 4 chars per token, stop below 10 tokens
+    private final ContextBuilder builder = new ContextBuilder(null, null, null, 3, 0.5, 3, 100, 4, 10,
+            false, 0.7, 0.95);
+
+    @Test
+    void keepsTopKChunksThatFit() {
+        List<String> excerpts = builder.pack(List.of("a".repeat(40), "b".repeat(40), "c".repeat(40), "d".repeat(40)));
+        assertThat(excerpts).containsExactly("a".repeat(40), "b".repeat(40), "c".repeat(40));
+    }
+
+    @Test
+    void dropsChunksThatDoNotFitAndBackfillsFromCandidates() {
+        List<String> excerpts = builder.pack(List.of("a".repeat(200), "b".repeat(300), "c".repeat(100),
+                "a".repeat(200), "d".repeat(100)));
+        assertThat(excerpts).containsExactly("a".repeat(200), "c".repeat(100), "d".repeat(100));
+        assertThat(excerpts.stream().mapToInt(builder::estimateTokens).sum()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void truncatesAnOversizedBestChunkAtAWordBoundary() {
+        String chunk = "word ".repeat(200);
+        List<String> excerpts = builder.pack(List.of(chunk, "second"));
+        assertThat(excerpts).hasSize(1);
+        assertThat(excerpts.get(0)).startsWith("word word").endsWith("word ...");
+        assertThat(builder.estimateTokens(excerpts.get(0))).isLessThanOrEqualTo(100);
+    }
+}
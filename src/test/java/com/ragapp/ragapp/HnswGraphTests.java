@@ -0,0 +1,117 @@
+package com.ragapp.ragapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswGraphTests {
+
+    private static final int DIMENSIONS = 32;
+    private static final int NODES = 2000;
+
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final float[][] centres = new float[20][DIMENSIONS];
+
+    HnswGraphTests() {
+        for (float[] centre : centres) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                centre[i] = (float) random.nextGaussian() * 3;
+            }
+        }
+    }
+
+    @Test
+    void findsNearlyAllExactNeighbours() {
+        VectorStorage vectors = VectorStorage.inMemory(DIMENSIONS);
+        HnswGraph graph = build(vectors);
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = clusteredUnitVector();
+            Set<Integer> exact = exactTop(vectors, graph, query, 10);
+            for (HnswGraph.Match match : graph.search(query, 10, 64)) {
+                found += exact.contains(match.node()) ? 1 : 0;
+            }
+        }
+        assertThat(found / (double) (queries * 10)).isGreaterThan(0.95);
+    }
+
+    @Test
+    void neverReturnsDeletedNodes() {
+        VectorStorage vectors = VectorStorage.inMemory(DIMENSIONS);
+        HnswGraph graph = build(vectors);
+        for (int node = 0; node < NODES; node += 2) {
+            graph.markDeleted(node);
+        }
+
+        List<HnswGraph.Match> matches = graph.search(clusteredUnitVector(), 20, 64);
+        assertThat(matches).hasSize(20);
+        assertThat(matches).allSatisfy(match -> assertThat(graph.isDeleted(match.node())).isFalse());
+        assertThat(matches).isSortedAccordingTo(
+                Comparator.comparing(HnswGraph.Match::similarity).reversed());
+        assertThat(graph.liveSize()).isEqualTo(NODES / 2);
+    }
+
+    @Test
+    void snapshotRoundTripKeepsResults() throws IOException {
+        VectorStorage vectors = VectorStorage.inMemory(DIMENSIONS);
+        HnswGraph graph = build(vectors);
+        graph.markDeleted(3);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        graph.write(new DataOutputStream(bytes));
+        HnswGraph restored = HnswGraph.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                vectors, 1);
+
+        float[] query = clusteredUnitVector();
+        assertThat(restored.size()).isEqualTo(graph.size());
+        assertThat(restored.isDeleted(3)).isTrue();
+        assertThat(restored.search(query, 10, 64)).isEqualTo(graph.search(query, 10, 64));
+    }
+
+    private HnswGraph build(VectorStorage vectors) {
+        HnswGraph graph = new HnswGraph(vectors, 8, 64, 42);
+        for (int node = 0; node < NODES; node++) {
+            vectors.set(node, clusteredUnitVector());
+            graph.insert();
+        }
+        return graph;
+    }
+
+    private static Set<Integer> exactTop(VectorStorage vectors, HnswGraph graph, float[] query, int k) {
+        Integer[] nodes = IntStream.range(0, graph.size())
+                .filter(node -> !graph.isDeleted(node))
+                .boxed()
+                .toArray(Integer[]::new);
+        Arrays.sort(nodes, Comparator.comparing((Integer node) -> vectors.dot(node, query)).reversed());
+        return new HashSet<>(Arrays.asList(nodes).subList(0, k));
+    }
+
+    private float[] clusteredUnitVector() {
+        float[] centre = centres[random.nextInt(centres.length)];
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = centre[i] + (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ragapp.ragapp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LexiconQueryClassifierTests {
+
+    private final LexiconQueryClassifier classifier = new LexiconQueryClassifier();
+
+    @Test
+    void greetingsAreConfidentlyCasual() {
+        for (String message : new String[] { "hi", "Hello there!", "thanks a lot", "What's up?", "bye" }) {
+            QueryRoute route = classifier.classify(message);
+            assertThat(route.intent()).as(message).isEqualTo(QueryRoute.Intent.CASUAL);
+            assertThat(route.source()).isEqualTo(QueryRoute.Source.LEXICON);
+            assertThat(route.confidence()).as(message).isGreaterThanOrEqualTo(0.7);
+        }
+    }
+
+    @Test
+    void greetingsFollowedBySmallTalkQuestionsAreCasual() {
+        for (String message : new String[] {
+                "hi, how are you?",
+                "Good morning! How are you doing today?",
+                "How are you doing today?",
+                "hey there, what's up guys" }) {
+            QueryRoute route = classifier.classify(message);
+            assertThat(route.intent()).as(message).isEqualTo(QueryRoute.Intent.CASUAL);
+            assertThat(route.confidence()).as(message).isGreaterThanOrEqualTo(0.7);
+        }
+    }
+
+    @Test
+    void questionsAreConfidentlyKnowledge() {
+        for (String message : new String[] {
+                "What is the annual leave policy?",
+                "hi, how do I submit an expense claim",
+                "Explain the coverage limits of policy 4411-B" }) {
+            QueryRoute route = classifier.classify(message);
+            assertThat(route.isKnowledge()).as(message).isTrue();
+            assertThat(route.confidence()).as(message).isGreaterThanOrEqualTo(0.7);
+        }
+    }
+
+    @Test
+    void shortFragmentsAreLowConfidence() {
+        QueryRoute route = classifier.classify("leave policy");
+        assertThat(route.isKnowledge()).isTrue();
+        assertThat(route.confidence()).isLessThan(0.7);
+    }
+}
@@ -0,0 +1,33 @@
+package com.ragapp.ragapp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaximalMarginalRelevanceTests {
+
+    private static final float[] QUERY = { 1, 0, 0 };
+
+    @Test
+    void dropsNearDuplicatesOfPickedCandidates() {
+        List<float[]> candidates = List.of(
+                new float[] { 0.9f, 0.1f, 0 },
+                new float[] { 0.9f, 0.1f, 0.001f },
+                new float[] { 0.6f, 0, 0.8f });
+
+        assertThat(MaximalMarginalRelevance.rank(QUERY, candidates, 0.7, 0.95)).containsExactly(0, 2);
+    }
+
+    @Test
+    void lambdaTradesRelevanceAgainstDiversity() {
+        List<float[]> candidates = List.of(
+                new float[] { 1, 0, 0 },
+                new float[] { 0.95f, 0.31f, 0 },
+                new float[] { 0.7f, 0, 0.71f });
+
+        assertThat(MaximalMarginalRelevance.rank(QUERY, candidates, 1.0, 0.99)).containsExactly(0, 1, 2);
+        assertThat(MaximalMarginalRelevance.rank(QUERY, candidates, 0.3, 0.99)).containsExactly(0, 2, 1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.ragapp.ragapp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class MetadataFilterTests {
+
+    private static final FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+    private static final Map<String, Object> CHUNK = Map.of("document_id", "a", "page", 3, "score", 0.5);
+
+    @Test
+    void combinesComparisons() {
+        Predicate<Map<String, Object>> filter = MetadataFilter.of(
+                b.and(b.in("document_id", "a", "b"), b.not(b.eq("page", 4))).build());
+
+        assertThat(filter.test(CHUNK)).isTrue();
+        assertThat(filter.test(Map.of("document_id", "a", "page", 4))).isFalse();
+        assertThat(filter.test(Map.of("document_id", "c", "page", 3))).isFalse();
+    }
+
+    @Test
+    void comparesNumbersByValue() {
+        assertThat(MetadataFilter.of(b.eq("page", 3.0).build()).test(CHUNK)).isTrue();
+        assertThat(MetadataFilter.of(b.gte("page", 3L).build()).test(CHUNK)).isTrue();
+        assertThat(MetadataFilter.of(b.lt("score", 1).build()).test(CHUNK)).isTrue();
+        assertThat(MetadataFilter.of(b.gt("document_id", 1).build()).test(CHUNK)).isFalse();
+    }
+
+    @Test
+    void missingKeyMatchesOnlyNegations() {
+        assertThat(MetadataFilter.of(b.eq("source", "x").build()).test(CHUNK)).isFalse();
+        assertThat(MetadataFilter.of(b.lt("source", 1).build()).test(CHUNK)).isFalse();
+        assertThat(MetadataFilter.of(b.ne("source", "x").build()).test(CHUNK)).isTrue();
+        assertThat(MetadataFilter.of(b.nin("source", "x").build()).test(CHUNK)).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedExpressionsUpFront() {
+        Filter.Expression valueOnLeft = new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Value("a"),
+                new Filter.Value("a"));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> MetadataFilter.of(valueOnLeft));
+    }
+}
@@ -0,0 +1,76 @@
+package com.ragapp.ragapp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelBulkheadTests {
+
+    private final ModelBulkhead bulkhead = new ModelBulkhead(new RagMetrics(new SimpleMeterRegistry()), 1, Map.of(
+            ModelBulkhead.Workload.CLASSIFICATION, new ModelBulkhead.Limit(1, 4),
+            ModelBulkhead.Workload.CHAT, new ModelBulkhead.Limit(1, 4),
+            ModelBulkhead.Workload.QUERY_EMBEDDING, new ModelBulkhead.Limit(1, 4),
+            ModelBulkhead.Workload.INGESTION, new ModelBulkhead.Limit(1, 1)), Duration.ofSeconds(3));
+
+    @Test
+    void freedSlotGoesToTheHighestPriorityWaiter() throws Exception {
+        List<ModelBulkhead.Workload> order = new CopyOnWriteArrayList<>();
+        ModelBulkhead.Permit running = bulkhead.acquire(ModelBulkhead.Workload.INGESTION);
+
+        Thread ingestion = waitFor(ModelBulkhead.Workload.INGESTION, order);
+        awaitQueued(ModelBulkhead.Workload.INGESTION);
+        Thread chat = waitFor(ModelBulkhead.Workload.CHAT, order);
+        awaitQueued(ModelBulkhead.Workload.CHAT);
+
+        running.close();
+        chat.join(5000);
+        ingestion.join(5000);
+        assertThat(order).containsExactly(ModelBulkhead.Workload.CHAT, ModelBulkhead.Workload.INGESTION);
+        assertThat(bulkhead.active(ModelBulkhead.Workload.INGESTION)).isZero();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws Exception {
+        ModelBulkhead.Permit running = bulkhead.acquire(ModelBulkhead.Workload.INGESTION);
+        Thread waiting = waitFor(ModelBulkhead.Workload.INGESTION, new CopyOnWriteArrayList<>());
+        awaitQueued(ModelBulkhead.Workload.INGESTION);
+
+        assertThatThrownBy(() -> bulkhead.acquire(ModelBulkhead.Workload.INGESTION))
+                .isInstanceOfSatisfying(ModelOverloadedException.class, e -> {
+                    assertThat(e.getStatusCode().value()).isEqualTo(429);
+                    assertThat(e.getHeaders().getFirst("Retry-After")).isEqualTo("3");
+                });
+
+        running.close();
+        waiting.join(5000);
+    }
+
+    private Thread waitFor(ModelBulkhead.Workload workload, List<ModelBulkhead.Workload> order) {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread thread = Thread.ofPlatform().start(() -> {
+            started.countDown();
+            bulkhead.call(workload, () -> order.add(workload));
+        });
+        try {
+            started.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return thread;
+    }
+
+    private void awaitQueued(ModelBulkhead.Workload workload) throws InterruptedException {
+        while (bulkhead.queued(workload) == 0) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ragapp.ragapp.ui;
+
+import com.ragapp.ragapp.ChatResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatHistoryTests {
+
+    @Test
+    void keepsOnlyTheNewestMessages() {
+        ChatHistory history = new ChatHistory(3);
+        for (int i = 0; i < 5; i++) {
+            history.add(ChatHistory.Role.USER, "question " + i, List.of());
+        }
+
+        assertThat(history.messages()).extracting(ChatHistory.Message::markdown)
+                .containsExactly("question 2", "question 3", "question 4");
+    }
+
+    @Test
+    void identicalMessagesStayDistinct() {
+        ChatHistory history = new ChatHistory(10);
+        ChatHistory.Message first = history.add(ChatHistory.Role.ASSISTANT, "Same answer",
+                List.of(new ChatResponse.Reference("excerpt")));
+        ChatHistory.Message second = history.add(ChatHistory.Role.ASSISTANT, "Same answer",
+                List.of(new ChatResponse.Reference("excerpt")));
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(history.messages()).containsExactly(first, second);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ragapp.ragapp.ui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarkdownRendererTests {
+
+    private static final String ANSWER = """
+            ## Leave policy
+            Employees get **25 days** of *paid* leave, see `policy <A&B>`.
+
+            Steps:
+            1. Open the portal
+            2. Submit the __request__
+
+            - approved by _manager_
+            - logged in HR
+
+            ```java
+            int days = 25;
+            ```
+            That's all.""";
+
+    @Test
+    void rendersInlineMarkupAndEscapesHtml() {
+        assertThat(MarkdownRenderer.toHtml("Hello **world** & _you_\nline \"two\"\n\nnext"))
+                .isEqualTo("<p>Hello <strong>world</strong> &amp; <em>you</em><br>line &quot;two&quot;</p><p>next</p>");
+        assertThat(MarkdownRenderer.toHtml("`<b>` and snake_case_name"))
+                .isEqualTo("<p><code>&lt;b&gt;</code> and snake<em>case</em>name</p>");
+    }
+
+    @Test
+    void rendersBlocks() {
+        assertThat(MarkdownRenderer.toHtml(ANSWER)).isEqualTo(
+                "<h2>Leave policy</h2>"
+                        + "<p>Employees get <strong>25 days</strong> of <em>paid</em> leave, see <code>policy &lt;A&amp;B&gt;</code>.</p>"
+                        + "<p>Steps:</p>"
+                        + "<ol><li>Open the portal</li><li>Submit the <strong>request</strong></li></ol>"
+                        + "<ul><li>approved by <em>manager</em></li><li>logged in HR</li></ul>"
+                        + "<pre><code>int days = 25;</code></pre>"
+                        + "<p>That&#x27;s all.</p>");
+    }
+
+    @Test
+    void incrementalRenderingMatchesFullRendering() {
+        for (int chunkSize = 1; chunkSize <= 7; chunkSize++) {
+            MarkdownRenderer.Incremental renderer = MarkdownRenderer.incremental();
+            StringBuilder committed = new StringBuilder();
+            for (int i = 0; i < ANSWER.length(); i += chunkSize) {
+                int end = Math.min(ANSWER.length(), i + chunkSize);
+                MarkdownRenderer.Update update = renderer.append(ANSWER.substring(i, end));
+                committed.append(update.committedHtml());
+                assertThat(committed + update.tailHtml()).isEqualTo(MarkdownRenderer.toHtml(ANSWER.substring(0, end)));
+            }
+            committed.append(renderer.finish().committedHtml());
+            assertThat(committed.toString()).isEqualTo(MarkdownRenderer.toHtml(ANSWER));
+        }
+    }
+
+    @Test
+    void strayMarkersStayLiteral() {
+        assertThat(MarkdownRenderer.toHtml("2 * 3 = 6 and a**b")).isEqualTo("<p>2 * 3 = 6 and a**b</p>");
+        assertThat(MarkdownRenderer.toHtml("*a _b ".repeat(20_000))).startsWith("<p><em>a _b </em>");
+    }
+}